@@ -0,0 +1,110 @@
+package org.prodet.oci.repository;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.prodet.oci.config.properties.IdsProperties;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.repository.AppFileRepository.CompletedFile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AppFileRepository} against the embedded H2 in Oracle mode (the dev profile's database, migrated by Flyway),
+ * at different table sizes. The inserts grow the table during a trial, by far less than its starting size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppFileRepositoryBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final String STORAGE_PATH = "/bench/generated";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"50"})
+    public int limit;
+
+    private SingleConnectionDataSource dataSource;
+    private AppFileRepository repository;
+    private OffsetDateTime now;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+            "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=Oracle;DB_CLOSE_DELAY=-1", "sa", "", true);
+        Flyway.configure()
+            .dataSource(dataSource)
+            .locations("classpath:db/migration")
+            .placeholders(Map.of("appUser", "SA"))
+            .load()
+            .migrate();
+        repository = new AppFileRepository(new JdbcTemplate(dataSource), new IdsProperties());
+
+        now = OffsetDateTime.now(ZoneOffset.UTC);
+        for (int inserted = 0; inserted < rows; inserted += 1_000) {
+            repository.insertCompletedBatch(completedFiles(Math.min(1_000, rows - inserted)), 1_000);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<AppFileDto> findLatest() {
+        return repository.findLatest(limit);
+    }
+
+    @Benchmark
+    public long insertStarted() {
+        return repository.insertStarted(STORAGE_PATH, nextFileName(), now);
+    }
+
+    /**
+     * One batch of {@value #BATCH_SIZE} completed rows; divide by the batch size for the cost per row.
+     */
+    @Benchmark
+    public void insertCompletedBatch() {
+        repository.insertCompletedBatch(completedFiles(BATCH_SIZE), BATCH_SIZE);
+    }
+
+    private List<CompletedFile> completedFiles(int count) {
+        List<CompletedFile> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OffsetDateTime startedAt = now.plusNanos(sequence * 1_000);
+            files.add(new CompletedFile(STORAGE_PATH, nextFileName(), null, startedAt, startedAt, 1_024, null, null));
+        }
+        return files;
+    }
+
+    private String nextFileName() {
+        return "bench-" + sequence++ + ".json";
+    }
+}
@@ -0,0 +1,45 @@
+package org.prodet.oci.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.prodet.oci.service.SeedRegistry.SeedType;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building generated file names: the whole name, and its timestamp and random suffix parts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileNameBenchmark {
+
+    private int index;
+
+    @Benchmark
+    public String fileName() {
+        return FileGenerationService.fileName(SeedType.JSON, index++ & 1023);
+    }
+
+    @Benchmark
+    public String timestamp() {
+        return OffsetDateTime.now(ZoneOffset.UTC).format(FileGenerationService.FILE_TS);
+    }
+
+    @Benchmark
+    public String randomSuffix() {
+        return FileGenerationService.randomSuffix();
+    }
+}
@@ -0,0 +1,69 @@
+package org.prodet.oci.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.service.SeedRegistry.SeedType;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size of a just written file: a {@code Files.size} stat, the single attribute read sync does, and the byte count
+ * the generation already has in hand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileSizeBenchmark {
+
+    private Path dir;
+    private Path file;
+    private SeedRegistry.Seed seed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("file-size-bench");
+        file = dir.resolve("seed.json");
+        SeedRegistry seedRegistry = new SeedRegistry(new GenerationProperties());
+        seed = seedRegistry.pick(SeedType.JSON);
+        seedRegistry.write(seed, file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public long filesSize() throws IOException {
+        return Files.size(file);
+    }
+
+    @Benchmark
+    public long readAttributes() throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).size();
+    }
+
+    @Benchmark
+    public long writtenBytes() {
+        return seed.size();
+    }
+}
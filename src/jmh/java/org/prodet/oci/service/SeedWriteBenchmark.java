@@ -0,0 +1,87 @@
+package org.prodet.oci.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.ContentEncoding;
+import org.prodet.oci.service.ContentCompression.StoredContent;
+import org.prodet.oci.service.SeedRegistry.SeedType;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one generated file the way {@code FileGenerationService} does, per storage strategy: a plain copy of the
+ * seed, a gzip-compressed copy, or a hard link to the deduplicated blob. Targets cycle through a fixed set of names,
+ * so most writes replace an existing file, as regenerating into a full directory would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeedWriteBenchmark {
+
+    private static final int TARGETS = 1024;
+
+    @Param({"copy", "gzip", "dedup"})
+    public String strategy;
+
+    @Param({"JSON", "XML"})
+    public SeedType type;
+
+    private Path location;
+    private Path generatedDir;
+    private SeedRegistry seedRegistry;
+    private ContentCompression contentCompression;
+    private BlobStore blobStore;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        location = Files.createTempDirectory("seed-write-bench");
+        generatedDir = Files.createDirectories(location.resolve("generated"));
+
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(location.toString());
+        storageProperties.getCompression().setEncoding("gzip".equals(strategy) ? ContentEncoding.GZIP : ContentEncoding.IDENTITY);
+        storageProperties.getDedup().setEnabled("dedup".equals(strategy));
+
+        seedRegistry = new SeedRegistry(new GenerationProperties());
+        contentCompression = new ContentCompression(storageProperties);
+        blobStore = new BlobStore(storageProperties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(location);
+    }
+
+    @Benchmark
+    public StoredContent write() throws IOException {
+        Path target = generatedDir.resolve("f-" + (index++ % TARGETS) + "." + type.extension());
+        StoredContent content = contentCompression.encode(seedRegistry.pick(type));
+        if (blobStore.isEnabled()) {
+            blobStore.link(content.sha256(), content.content(), target);
+        } else {
+            seedRegistry.write(content.content(), target);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,63 @@
+package org.prodet.oci.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one endpoint's requests. Every latency is kept, so percentiles are exact; a run records
+ * at most a few hundred thousand requests.
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    /**
+     * @param outcome the HTTP status, or the exception's simple name when there was no response
+     */
+    synchronized void record(long latencyNanos, String outcome, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        outcomes.merge(outcome, 1L, Long::sum);
+        if (error) {
+            errors++;
+        }
+    }
+
+    synchronized LoadReport.EndpointStats stats(double rate, double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new LoadReport.EndpointStats(
+            rate,
+            count,
+            errors,
+            count == 0 ? 0 : (double) errors / count,
+            seconds <= 0 ? 0 : count / seconds,
+            millis(percentile(sorted, 0.50)),
+            millis(percentile(sorted, 0.95)),
+            millis(percentile(sorted, 0.99)),
+            millis(count == 0 ? 0 : sorted[count - 1]),
+            new TreeMap<>(outcomes)
+        );
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,91 @@
+package org.prodet.oci.loadtest;
+
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a load test run, as written to (and read back from) JSON. Latencies are in milliseconds, measured from
+ * when a request was due rather than when it was sent, so a stalled server shows up as latency instead of as fewer
+ * requests.
+ */
+record LoadReport(
+    String startedAt,
+    String duration,
+    String warmup,
+    Map<String, EndpointStats> endpoints,
+    List<String> regressions
+) {
+
+    private static final JsonMapper JSON = JsonMapper.builder()
+        .enable(SerializationFeature.INDENT_OUTPUT)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    record EndpointStats(
+        double rate,
+        long requests,
+        long errors,
+        double errorRate,
+        double throughput,
+        double p50Ms,
+        double p95Ms,
+        double p99Ms,
+        double maxMs,
+        Map<String, Long> outcomes
+    ) {
+    }
+
+    static LoadReport read(Path file) {
+        return JSON.readValue(file.toFile(), LoadReport.class);
+    }
+
+    void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        JSON.writeValue(file.toFile(), this);
+    }
+
+    LoadReport withRegressions(List<String> regressions) {
+        return new LoadReport(startedAt, duration, warmup, endpoints, regressions);
+    }
+
+    /**
+     * Endpoints that got slower or less reliable than in {@code baseline}: p95 or p99 more than {@code tolerance}
+     * (relative) and {@code minDeltaMs} (absolute) above it, throughput more than {@code tolerance} below it, or an
+     * error rate more than a percentage point above it. Endpoints missing from either run are not compared.
+     */
+    List<String> regressionsAgainst(LoadReport baseline, double tolerance, double minDeltaMs) {
+        List<String> found = new ArrayList<>();
+        endpoints.forEach((name, current) -> {
+            EndpointStats before = baseline.endpoints().get(name);
+            if (before == null || current.requests() == 0) {
+                return;
+            }
+            latency(found, name, "p95", current.p95Ms(), before.p95Ms(), tolerance, minDeltaMs);
+            latency(found, name, "p99", current.p99Ms(), before.p99Ms(), tolerance, minDeltaMs);
+            if (current.throughput() < before.throughput() * (1 - tolerance)) {
+                found.add(String.format("%s throughput %.2f/s, baseline %.2f/s", name, current.throughput(), before.throughput()));
+            }
+            if (current.errorRate() > before.errorRate() + 0.01) {
+                found.add(String.format("%s error rate %.2f%%, baseline %.2f%%", name, current.errorRate() * 100, before.errorRate() * 100));
+            }
+        });
+        return found;
+    }
+
+    private static void latency(List<String> found, String name, String percentile, double current, double baseline,
+                                double tolerance, double minDeltaMs) {
+        if (current > baseline * (1 + tolerance) && current - baseline > minDeltaMs) {
+            found.add(String.format("%s %s %.1f ms, baseline %.1f ms", name, percentile, current, baseline));
+        }
+    }
+}
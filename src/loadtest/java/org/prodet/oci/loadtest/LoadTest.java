@@ -0,0 +1,292 @@
+package org.prodet.oci.loadtest;
+
+import org.prodet.oci.OciApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mixed-workload load generator. Boots the application with the dev profile (in-memory H2, a temporary storage
+ * location) on a random port, or targets {@code --base-url}, and sends generate, list, sync, upload and clean
+ * requests at fixed rates for {@code --duration}. Requests are issued on schedule whether or not earlier ones have
+ * finished (open loop), the way independent clients behave.
+ * <p>
+ * Writes a JSON report ({@code --report}) with latency percentiles, throughput and error rate per endpoint, and
+ * compares it with {@code --baseline} if that exists; any regression makes the exit status 1. Baselines are only
+ * comparable on the same machine. Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code duration} (PT60S), {@code warmup} (PT10S, not recorded)</li>
+ *     <li>{@code rates}: requests per second per endpoint (generate:2,list:50,sync:1,upload:5,clean:0.05)</li>
+ *     <li>{@code generate-count} (20), {@code upload-size} bytes (16384)</li>
+ *     <li>{@code report}, {@code baseline}, {@code update-baseline} (false)</li>
+ *     <li>{@code tolerance} (0.25) and {@code min-delta-ms} (5) for the regression check</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Options options;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final Map<Workload, LatencyRecorder> recorders = new EnumMap<>(Workload.class);
+    private final byte[] uploadContent;
+    private final AtomicLong uploadSequence = new AtomicLong();
+    private URI baseUri;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.uploadContent = new byte[options.uploadSize()];
+        ThreadLocalRandom.current().nextBytes(uploadContent);
+        for (Workload workload : Workload.values()) {
+            recorders.put(workload, new LatencyRecorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        LoadTest loadTest = new LoadTest(options);
+        int status;
+        if (options.baseUrl() != null) {
+            loadTest.baseUri = URI.create(options.baseUrl());
+            status = loadTest.runAndReport();
+        } else {
+            Path storage = Files.createTempDirectory("oci-loadtest");
+            ConfigurableApplicationContext app = startApplication(storage);
+            try {
+                loadTest.baseUri = URI.create("http://localhost:" + app.getEnvironment().getRequiredProperty("local.server.port"));
+                status = loadTest.runAndReport();
+            } finally {
+                app.close();
+                FileSystemUtils.deleteRecursively(storage);
+            }
+        }
+        System.exit(status);
+    }
+
+    private static ConfigurableApplicationContext startApplication(Path storage) {
+        // Command-line arguments, so they override application-dev.properties.
+        return new SpringApplicationBuilder(OciApplication.class)
+            .profiles("dev")
+            .run(
+                "--server.port=0",
+                "--storage.location=" + storage,
+                "--spring.datasource.url=jdbc:h2:mem:loadtest-" + UUID.randomUUID() + ";MODE=Oracle;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.org.prodet.oci=INFO"
+            );
+    }
+
+    private int runAndReport() throws Exception {
+        OffsetDateTime startedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        run();
+
+        double seconds = options.duration().toNanos() / 1e9;
+        Map<String, LoadReport.EndpointStats> endpoints = new LinkedHashMap<>();
+        options.rates().forEach((workload, rate) -> endpoints.put(workload.key, recorders.get(workload).stats(rate, seconds)));
+        LoadReport report = new LoadReport(startedAt.toString(), options.duration().toString(), options.warmup().toString(), endpoints, List.of());
+
+        Path baseline = options.baseline();
+        if (Files.isRegularFile(baseline)) {
+            report = report.withRegressions(report.regressionsAgainst(LoadReport.read(baseline), options.tolerance(), options.minDeltaMs()));
+        } else {
+            System.out.println("No baseline at " + baseline + "; run with --update-baseline=true to record this run as one.");
+        }
+        report.write(options.report());
+        print(report);
+        System.out.println("Report: " + options.report().toAbsolutePath());
+
+        if (options.updateBaseline()) {
+            report.withRegressions(List.of()).write(baseline);
+            System.out.println("Baseline updated: " + baseline.toAbsolutePath());
+            return 0;
+        }
+        return report.regressions().isEmpty() ? 0 : 1;
+    }
+
+    private void run() throws InterruptedException {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+
+        List<Thread> schedulers = new ArrayList<>();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            options.rates().forEach((workload, rate) -> {
+                if (rate <= 0) {
+                    return;
+                }
+                long interval = (long) (1e9 / rate);
+                schedulers.add(Thread.ofPlatform().name("loadtest-" + workload.key).start(() -> {
+                    for (long due = start; due < end; due += interval) {
+                        long wait;
+                        while ((wait = due - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        long scheduledAt = due;
+                        boolean measured = due >= measureFrom;
+                        requests.execute(() -> send(workload, scheduledAt, measured));
+                    }
+                }));
+            });
+            for (Thread scheduler : schedulers) {
+                scheduler.join();
+            }
+            // Closing the executor waits for the requests still in flight.
+        }
+    }
+
+    private void send(Workload workload, long scheduledAt, boolean measured) {
+        String outcome;
+        boolean error;
+        try {
+            HttpResponse<Void> response = httpClient.send(request(workload), HttpResponse.BodyHandlers.discarding());
+            outcome = Integer.toString(response.statusCode());
+            error = response.statusCode() >= 400;
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+            error = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (measured) {
+            recorders.get(workload).record(System.nanoTime() - scheduledAt, outcome, error);
+        }
+    }
+
+    private HttpRequest request(Workload workload) {
+        HttpRequest.Builder request = HttpRequest.newBuilder().timeout(REQUEST_TIMEOUT);
+        return switch (workload) {
+            case GENERATE -> request.uri(baseUri.resolve("/api/files/generate?count=" + options.generateCount()))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+            case LIST -> request.uri(baseUri.resolve("/api/files?limit=200")).GET().build();
+            case SYNC -> request.uri(baseUri.resolve("/api/files/sync?limit=200"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+            case CLEAN -> request.uri(baseUri.resolve("/api/files/clean"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+            case UPLOAD -> {
+                String boundary = "loadtest-" + UUID.randomUUID();
+                String fileName = "loadtest-" + uploadSequence.incrementAndGet() + ".bin";
+                byte[] head = ("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+                byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+                yield request.uri(baseUri.resolve("/api/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, uploadContent, tail)))
+                    .build();
+            }
+        };
+    }
+
+    private static void print(LoadReport report) {
+        System.out.printf("%-10s %8s %8s %9s %9s %9s %9s %9s %8s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "err %");
+        report.endpoints().forEach((name, stats) -> System.out.printf("%-10s %8d %8d %9.2f %9.1f %9.1f %9.1f %9.1f %8.2f%n",
+            name, stats.requests(), stats.errors(), stats.throughput(), stats.p50Ms(), stats.p95Ms(), stats.p99Ms(),
+            stats.maxMs(), stats.errorRate() * 100));
+        if (!report.regressions().isEmpty()) {
+            System.out.println("Regressions against the baseline:");
+            report.regressions().forEach(regression -> System.out.println("  " + regression));
+        }
+    }
+
+    enum Workload {
+        GENERATE("generate"),
+        LIST("list"),
+        SYNC("sync"),
+        UPLOAD("upload"),
+        CLEAN("clean");
+
+        private final String key;
+
+        Workload(String key) {
+            this.key = key;
+        }
+
+        static Workload of(String key) {
+            for (Workload workload : values()) {
+                if (workload.key.equals(key)) {
+                    return workload;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in --rates: " + key);
+        }
+    }
+
+    record Options(
+        Duration duration,
+        Duration warmup,
+        Map<Workload, Double> rates,
+        int generateCount,
+        int uploadSize,
+        Path report,
+        Path baseline,
+        boolean updateBaseline,
+        double tolerance,
+        double minDeltaMs,
+        String baseUrl
+    ) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            Map<Workload, Double> rates = new EnumMap<>(Workload.class);
+            for (String entry : values.getOrDefault("rates", "generate:2,list:50,sync:1,upload:5,clean:0.05").split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Expected endpoint:rate in --rates, got: " + entry);
+                }
+                rates.put(Workload.of(parts[0].trim()), Double.parseDouble(parts[1].trim()));
+            }
+            String baseUrl = values.get("base-url");
+            return new Options(
+                Duration.parse(values.getOrDefault("duration", "PT60S")),
+                Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                rates,
+                Integer.parseInt(values.getOrDefault("generate-count", "20")),
+                Integer.parseInt(values.getOrDefault("upload-size", "16384")),
+                Paths.get(values.getOrDefault("report", "target/loadtest/report.json")),
+                Paths.get(values.getOrDefault("baseline", "src/loadtest/baseline.json")),
+                Boolean.parseBoolean(values.getOrDefault("update-baseline", "false")),
+                Double.parseDouble(values.getOrDefault("tolerance", "0.25")),
+                Double.parseDouble(values.getOrDefault("min-delta-ms", "5")),
+                baseUrl == null || baseUrl.isBlank() ? null : baseUrl
+            );
+        }
+    }
+}
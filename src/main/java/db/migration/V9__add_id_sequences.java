@@ -0,0 +1,54 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sequences the repositories reserve id blocks from ({@code IdAllocator}): {@code app_file_seq} and
+ * {@code app_generation_seq}, incrementing by the {@code idBlockSize} placeholder ({@code ids.block-size}). A Java
+ * migration because START WITH has to be a literal: each sequence starts right after the highest id in its table.
+ * <p>
+ * On Oracle the identity columns are replaced by a sequence default, so rows inserted without an id (manual SQL)
+ * cannot collide with allocated ids. H2 (dev, tests) keeps its identity columns; nothing there inserts without an id.
+ */
+public class V9__add_id_sequences extends BaseJavaMigration {
+
+    private static final String[] TABLES = {"app_file", "app_generation"};
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Map<String, String> placeholders = context.getConfiguration().getPlaceholders();
+        int blockSize = Integer.parseInt(placeholders.getOrDefault("idBlockSize", "100"));
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("idBlockSize must be at least 1, got " + blockSize);
+        }
+
+        Connection connection = context.getConnection();
+        boolean oracle = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("oracle");
+        try (Statement statement = connection.createStatement()) {
+            for (String table : TABLES) {
+                String sequence = table + "_seq";
+                statement.execute("CREATE SEQUENCE " + sequence + " START WITH " + (maxId(statement, table) + 1) + " INCREMENT BY " + blockSize);
+                if (oracle) {
+                    statement.execute("ALTER TABLE " + table + " MODIFY id DROP IDENTITY");
+                    statement.execute("ALTER TABLE " + table + " MODIFY id DEFAULT " + sequence + ".NEXTVAL");
+                    statement.execute("GRANT SELECT ON " + sequence + " TO " + placeholders.get("appUser"));
+                }
+            }
+        }
+    }
+
+    private static long maxId(Statement statement, String table) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
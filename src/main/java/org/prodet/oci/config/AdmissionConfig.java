@@ -0,0 +1,44 @@
+package org.prodet.oci.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.prodet.oci.config.properties.AdmissionProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Set;
+
+/**
+ * Bulkheads in front of the expensive endpoints (generate, sync, clean) and a separate one for listings, so a burst of
+ * one kind is turned away with 429 instead of exhausting the connection pool for the others.
+ */
+@Configuration(proxyBeanMethods = false)
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public AdmissionConfig(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(interceptor("generate", properties.getGenerate(), "POST"))
+            .addPathPatterns("/api/files/generate");
+        registry.addInterceptor(interceptor("sync", properties.getSync(), "POST"))
+            .addPathPatterns("/api/files/sync", "/api/files/sync/report");
+        registry.addInterceptor(interceptor("clean", properties.getClean(), "POST"))
+            .addPathPatterns("/api/files/clean");
+        registry.addInterceptor(interceptor("listing", properties.getListing(), "GET"))
+            .addPathPatterns("/api/files", "/api/files/generations", "/api/files/generations/*");
+    }
+
+    private AdmissionInterceptor interceptor(String name, AdmissionProperties.Limit limit, String method) {
+        return new AdmissionInterceptor(new Bulkhead(name, limit, meterRegistry), Set.of(method));
+    }
+}
@@ -0,0 +1,62 @@
+package org.prodet.oci.config;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Set;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Runs the requests of one endpoint group inside a {@link Bulkhead}; a request that gets no slot is answered with 429
+ * and a Retry-After header before it reaches the controller.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private final Bulkhead bulkhead;
+    private final Set<String> methods;
+    private final String admittedAttribute;
+
+    /**
+     * @param methods HTTP methods of the group; other requests on the same paths pass through
+     */
+    public AdmissionInterceptor(Bulkhead bulkhead, Set<String> methods) {
+        this.bulkhead = bulkhead;
+        this.methods = methods;
+        this.admittedAttribute = AdmissionInterceptor.class.getName() + "." + bulkhead.name();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !methods.contains(request.getMethod())) {
+            return true;
+        }
+        boolean admitted;
+        try {
+            admitted = bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Interrupted while waiting for admission", e);
+        }
+        if (!admitted) {
+            long seconds = Math.max(1, (bulkhead.retryAfter().toMillis() + 999) / 1000);
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+            throw new ResponseStatusException(TOO_MANY_REQUESTS, "Too many concurrent " + bulkhead.name() + " requests, try again later");
+        }
+        request.setAttribute(admittedAttribute, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(admittedAttribute) != null) {
+            request.removeAttribute(admittedAttribute);
+            bulkhead.release();
+        }
+    }
+}
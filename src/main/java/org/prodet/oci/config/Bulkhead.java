@@ -0,0 +1,101 @@
+package org.prodet.oci.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.prodet.oci.config.properties.AdmissionProperties;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed number of slots with a bounded wait queue. Waiters beyond {@code max-queued}, and waiters that do not get a
+ * slot within {@code max-wait}, are turned away instead of piling up on the connection pool.
+ * <p>
+ * Meters, tagged with the group name: {@code admission.active}, {@code admission.queued} and
+ * {@code admission.rejected} (with {@code reason} queue-full or timeout).
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final Semaphore slots;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final Duration retryAfter;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter queueFull;
+    private final Counter timedOut;
+
+    public Bulkhead(String name, AdmissionProperties.Limit limit, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, limit.getMaxConcurrent());
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.maxQueued = Math.max(0, limit.getMaxQueued());
+        this.maxWaitNanos = limit.getMaxWait().toNanos();
+        this.retryAfter = limit.getRetryAfter();
+        Gauge.builder("admission.active", this, Bulkhead::active)
+            .description("Requests holding a slot of the group")
+            .tag("group", name)
+            .register(meterRegistry);
+        Gauge.builder("admission.queued", queued, AtomicInteger::get)
+            .description("Requests waiting for a slot of the group")
+            .tag("group", name)
+            .register(meterRegistry);
+        this.queueFull = rejectedCounter(meterRegistry, name, "queue-full");
+        this.timedOut = rejectedCounter(meterRegistry, name, "timeout");
+    }
+
+    /**
+     * Takes a slot, waiting for one if the queue has room. Every {@code true} must be paired with {@link #release()}.
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            queueFull.increment();
+            return false;
+        }
+        try {
+            if (slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } finally {
+            queued.decrementAndGet();
+        }
+        timedOut.increment();
+        return false;
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+    public int active() {
+        return maxConcurrent - slots.availablePermits();
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String name, String reason) {
+        return Counter.builder("admission.rejected")
+            .description("Requests of the group rejected with 429")
+            .tag("group", name)
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,20 @@
+package org.prodet.oci.config;
+
+import org.prodet.oci.service.GeneratedLayoutMigration;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Moves existing generated files into the configured layout on startup ({@code storage.layout.migrate-on-startup=true}).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "storage.layout", name = "migrate-on-startup", havingValue = "true")
+public class GeneratedLayoutMigrationConfig {
+
+    @Bean
+    ApplicationRunner generatedLayoutMigration(GeneratedLayoutMigration migration) {
+        return args -> migration.migrate();
+    }
+}
@@ -0,0 +1,12 @@
+package org.prodet.oci.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs {@code @Scheduled} housekeeping such as expiring idle upload sessions.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+public class SchedulingConfig {
+}
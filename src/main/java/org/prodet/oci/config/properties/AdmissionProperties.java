@@ -0,0 +1,128 @@
+package org.prodet.oci.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-endpoint concurrency limits (bulkheads). Each group has its own permits, so a burst of generations cannot take
+ * the capacity of listings; keep the sum of the generate, sync and clean limits (plus generation.db-concurrency)
+ * well below the connection pool size, so listings still find connections.
+ */
+@ConfigurationProperties("admission")
+public class AdmissionProperties {
+
+    /**
+     * Apply the limits below; when disabled every request is admitted
+     */
+    private boolean enabled = true;
+
+    /**
+     * POST /api/files/generate (synchronous and async=true)
+     */
+    private final Limit generate = Limit.of(2, 8, Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+    /**
+     * POST /api/files/sync and /api/files/sync/report
+     */
+    private final Limit sync = Limit.of(1, 2, Duration.ofSeconds(5), Duration.ofSeconds(10));
+
+    /**
+     * POST /api/files/clean
+     */
+    private final Limit clean = Limit.of(1, 0, Duration.ZERO, Duration.ofSeconds(10));
+
+    /**
+     * GET /api/files, /api/files/generations and /api/files/generations/{id}; reserved for listings, never shared
+     * with the endpoints above
+     */
+    private final Limit listing = Limit.of(32, 64, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Limit getGenerate() {
+        return generate;
+    }
+
+    public Limit getSync() {
+        return sync;
+    }
+
+    public Limit getClean() {
+        return clean;
+    }
+
+    public Limit getListing() {
+        return listing;
+    }
+
+    public static class Limit {
+
+        /**
+         * Requests of the group running at the same time
+         */
+        private int maxConcurrent;
+
+        /**
+         * Requests waiting for a free slot; further requests are rejected with 429 at once
+         */
+        private int maxQueued;
+
+        /**
+         * Longest wait for a free slot before the request is rejected with 429
+         */
+        private Duration maxWait;
+
+        /**
+         * Value of the Retry-After header sent with a rejection
+         */
+        private Duration retryAfter;
+
+        static Limit of(int maxConcurrent, int maxQueued, Duration maxWait, Duration retryAfter) {
+            Limit limit = new Limit();
+            limit.setMaxConcurrent(maxConcurrent);
+            limit.setMaxQueued(maxQueued);
+            limit.setMaxWait(maxWait);
+            limit.setRetryAfter(retryAfter);
+            return limit;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.prodet.oci.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("events")
+public class EventsProperties {
+
+    /**
+     * Events buffered per subscriber of GET /api/files/events; a subscriber that falls further behind is disconnected
+     */
+    private int queueCapacity = 256;
+
+    /**
+     * Largest number of concurrent event streams; further subscriptions are rejected
+     */
+    private int maxSubscribers = 1_000;
+
+    /**
+     * Lifetime of one event stream; clients (EventSource) reconnect after it ends
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * Interval of the keep-alive comments sent on idle streams, so proxies do not close them
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxSubscribers() {
+        return maxSubscribers;
+    }
+
+    public void setMaxSubscribers(int maxSubscribers) {
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+}
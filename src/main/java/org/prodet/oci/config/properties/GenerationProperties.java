@@ -0,0 +1,255 @@
+package org.prodet.oci.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("generation")
+public class GenerationProperties {
+
+    /**
+     * How generated file metadata is written to app_file
+     */
+    private PersistenceMode persistence = PersistenceMode.BATCHED;
+
+    /**
+     * Number of rows sent per JDBC batch when persistence is BATCHED
+     */
+    private int batchSize = 500;
+
+    /**
+     * Maximum number of files materialized concurrently (on virtual threads); 1 disables parallel generation
+     */
+    private int parallelism = 8;
+
+    /**
+     * Maximum number of concurrent DB operations issued by generations; keep below the connection pool size
+     */
+    private int dbConcurrency = 4;
+
+    /**
+     * Optional external seed directory (with xml/ and json/ subdirectories) used instead of the bundled seeds
+     */
+    private String seedDirectory;
+
+    /**
+     * Minimum time between checks of the external seed directory for changes
+     */
+    private Duration seedReloadInterval = Duration.ofSeconds(30);
+
+    /**
+     * Background generation jobs (POST /api/files/generate?async=true)
+     */
+    private final Jobs jobs = new Jobs();
+
+    /**
+     * Distributed background generations: split into app_generation_task rows that every instance works on
+     */
+    private final Tasks tasks = new Tasks();
+
+    public PersistenceMode getPersistence() {
+        return persistence;
+    }
+
+    public void setPersistence(PersistenceMode persistence) {
+        this.persistence = persistence;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getDbConcurrency() {
+        return dbConcurrency;
+    }
+
+    public void setDbConcurrency(int dbConcurrency) {
+        this.dbConcurrency = dbConcurrency;
+    }
+
+    public String getSeedDirectory() {
+        return seedDirectory;
+    }
+
+    public void setSeedDirectory(String seedDirectory) {
+        this.seedDirectory = seedDirectory;
+    }
+
+    public Duration getSeedReloadInterval() {
+        return seedReloadInterval;
+    }
+
+    public void setSeedReloadInterval(Duration seedReloadInterval) {
+        this.seedReloadInterval = seedReloadInterval;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public enum PersistenceMode {
+        /**
+         * Collect rows in memory and flush them with JDBC batching in one transaction.
+         */
+        BATCHED,
+        /**
+         * Insert a started row before and update it after each file (one round trip each).
+         */
+        PER_ROW
+    }
+
+    public Tasks getTasks() {
+        return tasks;
+    }
+
+    public static class Jobs {
+
+        /**
+         * Number of generation jobs running at the same time
+         */
+        private int maxConcurrent = 2;
+
+        /**
+         * Number of submitted jobs that may wait for a free worker; further submissions are rejected
+         */
+        private int queueCapacity = 16;
+
+        /**
+         * Largest file count accepted for a single job
+         */
+        private int maxCount = 10_000_000;
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getMaxCount() {
+            return maxCount;
+        }
+
+        public void setMaxCount(int maxCount) {
+            this.maxCount = maxCount;
+        }
+    }
+
+    public static class Tasks {
+
+        /**
+         * Split background generations into tasks claimed by the workers of every instance sharing the database,
+         * instead of running each one on the instance that received it
+         */
+        private boolean enabled = false;
+
+        /**
+         * Files per task; each task's rows are committed in one transaction
+         */
+        private int size = 500;
+
+        /**
+         * Tasks this instance works on at the same time; 0 submits tasks but leaves them to other instances
+         */
+        private int workers = 2;
+
+        /**
+         * Time between checks for queued tasks while this instance has a free worker
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * How long a claimed task belongs to its worker; an unfinished task is claimed again afterwards (the
+         * worker may have died), so keep it well above the time a task takes
+         */
+        private Duration lease = Duration.ofMinutes(5);
+
+        /**
+         * Claims of a task before it, and its generation, fail
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Name this instance claims tasks under; a host name plus a random suffix when unset
+         */
+        private String workerId;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public Duration getLease() {
+            return lease;
+        }
+
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public String getWorkerId() {
+            return workerId;
+        }
+
+        public void setWorkerId(String workerId) {
+            this.workerId = workerId;
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package org.prodet.oci.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("ids")
+public class IdsProperties {
+
+    /**
+     * Ids reserved per round trip to app_file_seq / app_generation_seq. Baked into the sequences' INCREMENT BY when
+     * the V9 migration creates them; changing it afterwards needs a migration that alters both sequences to match
+     */
+    private int blockSize = 100;
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+}
@@ -0,0 +1,62 @@
+package org.prodet.oci.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("listing")
+public class ListingProperties {
+
+    /**
+     * In-memory cache of the newest files and generations (first listing pages, no cursor)
+     */
+    private final Cache cache = new Cache();
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public static class Cache {
+
+        /**
+         * Serve repeated first-page listings from memory until this application writes to app_file or app_generation;
+         * ignored (always off) with generation.tasks.enabled, where every instance writes
+         */
+        private boolean enabled = true;
+
+        /**
+         * Longest time a cached page is served. With several instances behind one database this is how stale a
+         * listing, and the ETag answered with 304, can be after another instance (or manual SQL) writes
+         */
+        private Duration ttl = Duration.ofSeconds(5);
+
+        /**
+         * Number of cached pages per listing (one per distinct limit); the least recently used page is dropped first
+         */
+        private int maxEntries = 16;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package org.prodet.oci.config.properties;
 
+import org.prodet.oci.dto.ContentEncoding;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
 @ConfigurationProperties("storage")
 public class StorageProperties {
 
@@ -10,6 +15,46 @@ public class StorageProperties {
      */
     private String location = "uploads";
 
+    /**
+     * Directory layout of generated files
+     */
+    private final Layout layout = new Layout();
+
+    /**
+     * Background indexer keeping app_file in step with the generated directory
+     */
+    private final Indexer indexer = new Indexer();
+
+    /**
+     * Full directory reconciliation used by sync
+     */
+    private final Sync sync = new Sync();
+
+    /**
+     * Background removal of cleaned generated files and rows
+     */
+    private final Clean clean = new Clean();
+
+    /**
+     * Content-addressed storage of generated files
+     */
+    private final Dedup dedup = new Dedup();
+
+    /**
+     * Compression of generated files at rest
+     */
+    private final Compression compression = new Compression();
+
+    /**
+     * Resumable chunked uploads
+     */
+    private final Uploads uploads = new Uploads();
+
+    /**
+     * Interval of the walk over the generated directory that feeds the storage.generated.* gauges
+     */
+    private Duration usageScanInterval = Duration.ofMinutes(5);
+
     public String getLocation() {
         return location;
     }
@@ -18,5 +63,352 @@ public class StorageProperties {
         this.location = location;
     }
 
-}
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public Indexer getIndexer() {
+        return indexer;
+    }
+
+    public Sync getSync() {
+        return sync;
+    }
+
+    public Clean getClean() {
+        return clean;
+    }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public Uploads getUploads() {
+        return uploads;
+    }
+
+    public Duration getUsageScanInterval() {
+        return usageScanInterval;
+    }
+
+    public void setUsageScanInterval(Duration usageScanInterval) {
+        this.usageScanInterval = usageScanInterval;
+    }
+
+    public static class Layout {
+
+        /**
+         * Levels of hash-prefix subdirectories below generated; 0 keeps all files in one flat directory
+         */
+        private int levels = 2;
+
+        /**
+         * Subdirectories per level (2-256); the layout has fan-out^levels leaf directories, each one inotify watch
+         * when the indexer is enabled
+         */
+        private int fanOut = 64;
+
+        /**
+         * Move files that are not in their layout directory (e.g. an older flat layout) on startup
+         */
+        private boolean migrateOnStartup = false;
+
+        public int getLevels() {
+            return levels;
+        }
+
+        public void setLevels(int levels) {
+            this.levels = levels;
+        }
+
+        public int getFanOut() {
+            return fanOut;
+        }
+
+        public void setFanOut(int fanOut) {
+            this.fanOut = fanOut;
+        }
+
+        public boolean isMigrateOnStartup() {
+            return migrateOnStartup;
+        }
+
+        public void setMigrateOnStartup(boolean migrateOnStartup) {
+            this.migrateOnStartup = migrateOnStartup;
+        }
+    }
+
+    public static class Indexer {
+
+        /**
+         * Watch the generated directory and index changes as they happen instead of rescanning on sync. Every layout
+         * directory takes one inotify watch on Linux, 4162 with the default layout (2 levels of 64), so
+         * fs.inotify.max_user_watches must leave room for that on top of the host's other watchers
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long a file must stay unchanged before the indexer records it
+         */
+        private Duration settleDelay = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getSettleDelay() {
+            return settleDelay;
+        }
+
+        public void setSettleDelay(Duration settleDelay) {
+            this.settleDelay = settleDelay;
+        }
+    }
 
+    public static class Sync {
+
+        /**
+         * Known file names read per page (one short query each) while a full sync walks app_file
+         */
+        private int fetchSize = 1_000;
+
+        /**
+         * Directory entries sorted in memory before a sorted run is spilled to a temporary file
+         */
+        private int sortChunkSize = 100_000;
+
+        /**
+         * Discovered files recorded per MERGE batch
+         */
+        private int batchSize = 500;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+
+        public int getSortChunkSize() {
+            return sortChunkSize;
+        }
+
+        public void setSortChunkSize(int sortChunkSize) {
+            this.sortChunkSize = sortChunkSize;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    public static class Clean {
+
+        /**
+         * Files deleted concurrently while emptying a tombstone directory
+         */
+        private int parallelism = 8;
+
+        /**
+         * Rows removed from app_file per DELETE statement
+         */
+        private int deleteBatchSize = 10_000;
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getDeleteBatchSize() {
+            return deleteBatchSize;
+        }
+
+        public void setDeleteBatchSize(int deleteBatchSize) {
+            this.deleteBatchSize = deleteBatchSize;
+        }
+    }
+
+    public static class Dedup {
+
+        /**
+         * Store each distinct generated content once and create generated files as hard links to it
+         */
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Compression {
+
+        /**
+         * Encoding generated files are written with: identity, gzip or zstd (needs zstd-jni on the classpath,
+         * otherwise gzip is used)
+         */
+        private ContentEncoding encoding = ContentEncoding.IDENTITY;
+
+        /**
+         * Compression level; -1 uses the codec's default
+         */
+        private int level = -1;
+
+        public ContentEncoding getEncoding() {
+            return encoding;
+        }
+
+        public void setEncoding(ContentEncoding encoding) {
+            this.encoding = encoding;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+    }
+
+    public static class Uploads {
+
+        /**
+         * Chunk size used when the client does not ask for one
+         */
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+
+        /**
+         * Largest chunk size a client may ask for
+         */
+        private DataSize maxChunkSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Smallest chunk size a client may ask for, unless the whole file fits in one chunk
+         */
+        private DataSize minChunkSize = DataSize.ofKilobytes(64);
+
+        /**
+         * Most chunks a session may have; bounds the per-session bookkeeping and the status response
+         */
+        private int maxChunks = 10_000;
+
+        /**
+         * Largest file accepted through a chunked upload
+         */
+        private DataSize maxFileSize = DataSize.ofGigabytes(20);
+
+        /**
+         * Upload sessions open at the same time
+         */
+        private int maxSessions = 32;
+
+        /**
+         * Sessions without any chunk activity for this long are discarded
+         */
+        private Duration sessionTimeout = Duration.ofHours(1);
+
+        /**
+         * How often idle sessions are looked for
+         */
+        private Duration cleanupInterval = Duration.ofMinutes(1);
+
+        /**
+         * Longest wait of commit and abort for chunk writes still running on the session; after it they are refused
+         * with 409 and can be retried
+         */
+        private Duration closeWait = Duration.ofSeconds(10);
+
+        public DataSize getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(DataSize chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public DataSize getMaxChunkSize() {
+            return maxChunkSize;
+        }
+
+        public void setMaxChunkSize(DataSize maxChunkSize) {
+            this.maxChunkSize = maxChunkSize;
+        }
+
+        public DataSize getMinChunkSize() {
+            return minChunkSize;
+        }
+
+        public void setMinChunkSize(DataSize minChunkSize) {
+            this.minChunkSize = minChunkSize;
+        }
+
+        public int getMaxChunks() {
+            return maxChunks;
+        }
+
+        public void setMaxChunks(int maxChunks) {
+            this.maxChunks = maxChunks;
+        }
+
+        public DataSize getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setMaxFileSize(DataSize maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public Duration getSessionTimeout() {
+            return sessionTimeout;
+        }
+
+        public void setSessionTimeout(Duration sessionTimeout) {
+            this.sessionTimeout = sessionTimeout;
+        }
+
+        public Duration getCleanupInterval() {
+            return cleanupInterval;
+        }
+
+        public void setCleanupInterval(Duration cleanupInterval) {
+            this.cleanupInterval = cleanupInterval;
+        }
+
+        public Duration getCloseWait() {
+            return closeWait;
+        }
+
+        public void setCloseWait(Duration closeWait) {
+            this.closeWait = closeWait;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package org.prodet.oci.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.prodet.oci.dto.ContentEncoding;
+import org.prodet.oci.service.FileContentService;
+import org.prodet.oci.service.FileContentService.FileContent;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.NOT_ACCEPTABLE;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+/**
+ * Serves the content of recorded files.
+ * <p>
+ * Responses carry an ETag and Last-Modified, so conditional requests get a 304, and a single byte range is answered
+ * with 206. The body is handed to Tomcat's sendfile when the connector supports it and otherwise copied with
+ * {@link FileChannel#transferTo}, so file bytes are never staged in heap buffers.
+ * <p>
+ * Compressed files are sent as stored, with Content-Encoding, to clients whose Accept-Encoding allows it; everyone
+ * else gets them decoded while streaming.
+ */
+@RestController
+@RequestMapping("/api/files")
+public class FileContentController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Below this, a plain copy is as cheap as setting up sendfile (Tomcat's own default threshold).
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    private final FileContentService fileContentService;
+
+    public FileContentController(FileContentService fileContentService) {
+        this.fileContentService = fileContentService;
+    }
+
+    @GetMapping("/{id}/content")
+    public void content(@PathVariable("id") long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileContent content = fileContentService.find(id)
+            .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "File content not found: " + id));
+
+        ContentEncoding stored = content.encoding();
+        boolean sendStored = stored == ContentEncoding.IDENTITY || accepts(request.getHeader(HttpHeaders.ACCEPT_ENCODING), stored);
+        if (stored != ContentEncoding.IDENTITY) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!sendStored && !fileContentService.canDecode(stored)) {
+                throw new ResponseStatusException(NOT_ACCEPTABLE, "File is stored as " + stored.token() + " and cannot be decoded here");
+            }
+        }
+
+        String etag = content.etag(sendStored ? stored : ContentEncoding.IDENTITY);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, sendStored ? "bytes" : "none");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, content.lastModified().toEpochMilli())) {
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(content.fileName()).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.attachment().filename(content.fileName(), StandardCharsets.UTF_8).build().toString());
+        if (!sendStored) {
+            sendDecoded(content, request, response);
+            return;
+        }
+        if (stored != ContentEncoding.IDENTITY) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, stored.token());
+        }
+
+        long start = 0;
+        long length = content.size();
+        HttpRange range = requestedRange(request, etag, content);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(content.size());
+                length = range.getRangeEnd(content.size()) - start + 1;
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + content.size());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + content.size());
+        }
+
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file straight from the page cache to the socket once this method returns.
+            request.setAttribute(SENDFILE_FILENAME, content.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        transfer(content, start, length, response);
+    }
+
+    /**
+     * Decodes a compressed file on the fly for clients that do not accept its encoding; ranges are not offered
+     * on this representation, and the length is only sent when it is recorded.
+     */
+    private void sendDecoded(FileContent content, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (content.logicalSize() != null) {
+            response.setContentLengthLong(content.logicalSize());
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        try (InputStream in = fileContentService.openDecoded(content)) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows {@code encoding} (explicitly or via {@code *}) with a non-zero q-value.
+     */
+    private static boolean accepts(String acceptEncoding, ContentEncoding encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase(encoding.token()) && !coding.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The single range to send, or null for the whole file: no Range header, a malformed one, several ranges
+     * (answered with the full body, as RFC 9110 allows) or an If-Range that no longer matches.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, String etag, FileContent content) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request, etag, content)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.getFirst() : null;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, FileContent content) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == content.lastModified().getEpochSecond();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(FileContent content, long start, long length, HttpServletResponse response) throws IOException {
+        try (FileChannel channel = FileChannel.open(content.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    throw new EOFException("File shrank while it was being sent: " + content.path());
+                }
+                position += sent;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.prodet.oci.controller;
+
+import org.prodet.oci.config.properties.EventsProperties;
+import org.prodet.oci.service.FileEventBus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+@RestController
+@RequestMapping("/api/files")
+public class FileEventsController {
+
+    private final FileEventBus fileEventBus;
+    private final long timeoutMillis;
+
+    public FileEventsController(FileEventBus fileEventBus, EventsProperties eventsProperties) {
+        this.fileEventBus = fileEventBus;
+        this.timeoutMillis = eventsProperties.getTimeout().toMillis();
+    }
+
+    /**
+     * Server-sent events: {@value FileEventBus#FILES_CREATED}, {@value FileEventBus#GENERATION_PROGRESS} and
+     * {@value FileEventBus#GENERATION_FINISHED}, plus keep-alive comments. A client that falls behind is
+     * disconnected and expected to reconnect.
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        FileEventBus.Subscription subscription = fileEventBus.subscribe(new EmitterSink(emitter))
+            .orElseThrow(() -> new ResponseStatusException(SERVICE_UNAVAILABLE, "Too many event streams, try again later"));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    private record EmitterSink(SseEmitter emitter) implements FileEventBus.Sink {
+
+        @Override
+        public void send(FileEventBus.Event event) throws IOException {
+            if (event.isHeartbeat()) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return;
+            }
+            emitter.send(SseEmitter.event()
+                .id(Long.toString(event.id()))
+                .name(event.name())
+                .data(event.data(), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
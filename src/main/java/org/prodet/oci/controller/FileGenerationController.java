@@ -2,48 +2,112 @@ package org.prodet.oci.controller;
 
 import org.prodet.oci.dto.AppFileDto;
 import org.prodet.oci.dto.AppGenerationDto;
-import org.prodet.oci.dto.CleanResultDto;
+import org.prodet.oci.dto.CleanStatusDto;
+import org.prodet.oci.dto.GenerationProgressDto;
+import org.prodet.oci.dto.PageDto;
+import org.prodet.oci.dto.SyncResultDto;
 import org.prodet.oci.service.FileGenerationService;
+import org.prodet.oci.service.GeneratedFilesCleaner;
+import org.prodet.oci.service.GenerationArchiveService;
+import org.prodet.oci.service.GenerationJobService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 @RestController
 @RequestMapping("/api/files")
 public class FileGenerationController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final FileGenerationService fileGenerationService;
+    private final GenerationJobService generationJobService;
+    private final GeneratedFilesCleaner generatedFilesCleaner;
+    private final GenerationArchiveService generationArchiveService;
 
-    public FileGenerationController(FileGenerationService fileGenerationService) {
+    public FileGenerationController(FileGenerationService fileGenerationService, GenerationJobService generationJobService,
+                                    GeneratedFilesCleaner generatedFilesCleaner, GenerationArchiveService generationArchiveService) {
         this.fileGenerationService = fileGenerationService;
+        this.generationJobService = generationJobService;
+        this.generatedFilesCleaner = generatedFilesCleaner;
+        this.generationArchiveService = generationArchiveService;
     }
 
     @GetMapping
-    public ResponseEntity<List<AppFileDto>> listLatest(@RequestParam(name = "limit", defaultValue = "200") int limit) {
+    public ResponseEntity<List<AppFileDto>> listLatest(@RequestParam(name = "limit", defaultValue = "200") int limit,
+                                                       @RequestParam(name = "cursor", required = false) String cursor,
+                                                       @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (cursor == null && ifNoneMatch != null) {
+            Optional<String> version = fileGenerationService.latestVersion(limit);
+            if (version.isPresent() && matches(ifNoneMatch, etagOf(version.get(), limit))) {
+                return notModified(etagOf(version.get(), limit));
+            }
+        }
         try {
-            return ResponseEntity.ok(fileGenerationService.listLatest(limit));
+            return page(fileGenerationService.listPage(limit, cursor), limit);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
         }
     }
 
     @GetMapping("/generations")
-    public ResponseEntity<List<AppGenerationDto>> listLatestGenerations(@RequestParam(name = "limit", defaultValue = "50") int limit) {
+    public ResponseEntity<List<AppGenerationDto>> listLatestGenerations(@RequestParam(name = "limit", defaultValue = "50") int limit,
+                                                                        @RequestParam(name = "cursor", required = false) String cursor,
+                                                                        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (cursor == null && ifNoneMatch != null) {
+            Optional<String> version = fileGenerationService.latestGenerationsVersion(limit);
+            if (version.isPresent() && matches(ifNoneMatch, etagOf(version.get(), limit))) {
+                return notModified(etagOf(version.get(), limit));
+            }
+        }
         try {
-            return ResponseEntity.ok(fileGenerationService.listLatestGenerations(limit));
+            return page(fileGenerationService.listGenerationsPage(limit, cursor), limit);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
         }
     }
 
+    @GetMapping("/generations/{id}")
+    public ResponseEntity<GenerationProgressDto> generationProgress(@PathVariable("id") long id) {
+        return generationJobService.progress(id)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Generation not found: " + id));
+    }
+
+    /**
+     * Streams the generation's files as a ZIP archive, built on the fly; there is no Content-Length.
+     */
+    @GetMapping("/generations/{id}/archive")
+    public ResponseEntity<StreamingResponseBody> generationArchive(@PathVariable("id") long id) {
+        if (!generationArchiveService.exists(id)) {
+            throw new ResponseStatusException(NOT_FOUND, "Generation not found: " + id);
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/zip"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("generation-" + id + ".zip").build().toString())
+            .body(out -> generationArchiveService.writeArchive(id, out));
+    }
+
     @PostMapping("/generate")
     public ResponseEntity<List<AppFileDto>> generate(@RequestParam("count") int count) {
         try {
@@ -53,6 +117,20 @@ public class FileGenerationController {
         }
     }
 
+    @PostMapping(value = "/generate", params = "async=true")
+    public ResponseEntity<GenerationProgressDto> generateAsync(@RequestParam("count") int count) {
+        try {
+            GenerationProgressDto job = generationJobService.submit(count);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/files/generations/" + job.id()))
+                .body(job);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(TOO_MANY_REQUESTS, "Generation job queue is full, try again later", e);
+        }
+    }
+
     @PostMapping("/sync")
     public ResponseEntity<List<AppFileDto>> sync(@RequestParam(name = "limit", defaultValue = "200") int limit) {
         try {
@@ -62,8 +140,67 @@ public class FileGenerationController {
         }
     }
 
+    @PostMapping("/sync/report")
+    public ResponseEntity<SyncResultDto> syncReport() {
+        return ResponseEntity.ok(fileGenerationService.syncFilesystem());
+    }
+
     @PostMapping("/clean")
-    public ResponseEntity<CleanResultDto> clean() {
-        return ResponseEntity.ok(fileGenerationService.cleanAllGenerated());
+    public ResponseEntity<CleanStatusDto> clean() {
+        CleanStatusDto run = generatedFilesCleaner.clean();
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/files/clean/" + run.id()))
+            .body(run);
+    }
+
+    @GetMapping("/clean/{id}")
+    public ResponseEntity<CleanStatusDto> cleanStatus(@PathVariable("id") long id) {
+        return generatedFilesCleaner.status(id)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Clean not found: " + id));
+    }
+
+    /**
+     * Listings return the page as a plain array; the cursor for the next page (if any) goes into {@value #NEXT_CURSOR_HEADER}.
+     * Versioned pages carry an ETag, which also lets Spring answer a matching If-None-Match with 304 without
+     * serializing the page.
+     */
+    private static <T> ResponseEntity<List<T>> page(PageDto<T> page, int limit) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        if (page.version() != null) {
+            response.eTag(etagOf(page.version(), limit));
+        }
+        return response.body(page.items());
+    }
+
+    private static <T> ResponseEntity<List<T>> notModified(String etag) {
+        return ResponseEntity.status(NOT_MODIFIED).eTag(etag).build();
+    }
+
+    /**
+     * Weak: the version identifies the rows, not the exact bytes of their JSON.
+     */
+    private static String etagOf(String version, int limit) {
+        return "W/\"" + version + "-" + limit + "\"";
+    }
+
+    /**
+     * Weak comparison against an If-None-Match list, as required for GET.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String opaqueTag = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -1,13 +1,30 @@
 package org.prodet.oci.controller;
 
+import org.prodet.oci.dto.CreateUploadSessionDto;
+import org.prodet.oci.dto.UploadSessionDto;
+import org.prodet.oci.service.ChunkedUploadService;
 import org.prodet.oci.service.StorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.net.URI;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 record FileUploadResponse(String message, String fileName) {}
 
@@ -16,10 +33,12 @@ record FileUploadResponse(String message, String fileName) {}
 public class FileUploadController {
 
     private final StorageService storageService;
+    private final ChunkedUploadService chunkedUploadService;
 
     @Autowired
-    public FileUploadController(StorageService storageService) {
+    public FileUploadController(StorageService storageService, ChunkedUploadService chunkedUploadService) {
         this.storageService = storageService;
+        this.chunkedUploadService = chunkedUploadService;
     }
 
     @PostMapping("/upload")
@@ -28,4 +47,76 @@ public class FileUploadController {
         var response = new FileUploadResponse("You successfully uploaded " + file.getOriginalFilename() + "!", file.getOriginalFilename());
         return ResponseEntity.ok().body(response);
     }
+
+    /**
+     * Raw-body upload for large files: the request body is streamed straight to disk instead of being
+     * parsed as multipart, so neither the container nor the application buffers or spools it.
+     */
+    @PutMapping("/upload/{filename}")
+    public ResponseEntity<FileUploadResponse> handleStreamingUpload(@PathVariable("filename") String filename, InputStream body) {
+        long bytes = storageService.store(filename, body);
+        var response = new FileUploadResponse("You successfully uploaded " + filename + " (" + bytes + " bytes)!", filename);
+        return ResponseEntity.ok().body(response);
+    }
+
+    /**
+     * Opens a resumable upload: PUT each chunk to {@code /upload/sessions/{id}/chunks/{index}} (in any order, in parallel),
+     * GET the session to see which chunks are missing, then POST {@code /commit} to make the file visible.
+     */
+    @PostMapping("/upload/sessions")
+    public ResponseEntity<UploadSessionDto> createUploadSession(@RequestBody CreateUploadSessionDto request) {
+        try {
+            UploadSessionDto session = chunkedUploadService.create(request.fileName(), request.size(), request.chunkSize());
+            return ResponseEntity.created(URI.create("/api/upload/sessions/" + session.id())).body(session);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(TOO_MANY_REQUESTS, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/upload/sessions/{id}")
+    public ResponseEntity<UploadSessionDto> uploadSession(@PathVariable("id") String id) {
+        return chunkedUploadService.status(id)
+            .map(ResponseEntity::ok)
+            .orElseThrow(() -> uploadSessionNotFound(id));
+    }
+
+    @PutMapping("/upload/sessions/{id}/chunks/{index}")
+    public ResponseEntity<UploadSessionDto> uploadChunk(@PathVariable("id") String id, @PathVariable("index") int index, InputStream body) {
+        try {
+            return chunkedUploadService.writeChunk(id, index, body)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> uploadSessionNotFound(id));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/upload/sessions/{id}/commit")
+    public ResponseEntity<FileUploadResponse> commitUploadSession(@PathVariable("id") String id) {
+        try {
+            UploadSessionDto session = chunkedUploadService.commit(id).orElseThrow(() -> uploadSessionNotFound(id));
+            var response = new FileUploadResponse("You successfully uploaded " + session.fileName() + " (" + session.size() + " bytes)!", session.fileName());
+            return ResponseEntity.ok().body(response);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @DeleteMapping("/upload/sessions/{id}")
+    public ResponseEntity<Void> abortUploadSession(@PathVariable("id") String id) {
+        try {
+            if (!chunkedUploadService.abort(id)) {
+                throw uploadSessionNotFound(id);
+            }
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(CONFLICT, e.getMessage(), e);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseStatusException uploadSessionNotFound(String id) {
+        return new ResponseStatusException(NOT_FOUND, "Upload session not found: " + id);
+    }
 }
@@ -9,5 +9,7 @@ public record AppFileDto(
     String fileName,
     OffsetDateTime creationStartedAt,
     OffsetDateTime creationFinishedAt,
-    long fileSizeBytes
+    long fileSizeBytes,
+    String contentEncoding,
+    Long logicalSizeBytes
 ) {}
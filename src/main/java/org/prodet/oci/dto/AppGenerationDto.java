@@ -8,6 +8,8 @@ public record AppGenerationDto(
     Integer createdCount,
     OffsetDateTime generationStartedAt,
     OffsetDateTime generationFinishedAt,
-    Long durationMillis
+    Long durationMillis,
+    GenerationStatus status,
+    Long createdBytes,
+    String errorMessage
 ) {}
-
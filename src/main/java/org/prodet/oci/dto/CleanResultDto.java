@@ -1,7 +0,0 @@
-package org.prodet.oci.dto;
-
-public record CleanResultDto(
-    int deletedDbRows,
-    int deletedFiles
-) {}
-
@@ -0,0 +1,7 @@
+package org.prodet.oci.dto;
+
+public enum CleanStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
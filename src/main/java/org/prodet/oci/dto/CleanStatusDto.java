@@ -0,0 +1,13 @@
+package org.prodet.oci.dto;
+
+import java.time.OffsetDateTime;
+
+public record CleanStatusDto(
+    long id,
+    CleanStatus status,
+    long deletedDbRows,
+    long deletedFiles,
+    OffsetDateTime startedAt,
+    OffsetDateTime finishedAt,
+    String errorMessage
+) {}
@@ -0,0 +1,35 @@
+package org.prodet.oci.dto;
+
+import java.util.Optional;
+
+/**
+ * How a stored file's bytes are encoded; the token is the HTTP content-coding and what app_file.content_encoding
+ * holds (NULL for {@link #IDENTITY}).
+ */
+public enum ContentEncoding {
+    IDENTITY("identity"),
+    GZIP("gzip"),
+    ZSTD("zstd");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    public static Optional<ContentEncoding> ofToken(String token) {
+        if (token == null) {
+            return Optional.of(IDENTITY);
+        }
+        for (ContentEncoding encoding : values()) {
+            if (encoding.token.equalsIgnoreCase(token.trim())) {
+                return Optional.of(encoding);
+            }
+        }
+        return Optional.empty();
+    }
+}
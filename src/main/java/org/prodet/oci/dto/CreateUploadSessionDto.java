@@ -0,0 +1,10 @@
+package org.prodet.oci.dto;
+
+/**
+ * Request body that opens a chunked upload; {@code chunkSize} is optional.
+ */
+public record CreateUploadSessionDto(
+    String fileName,
+    long size,
+    Integer chunkSize
+) {}
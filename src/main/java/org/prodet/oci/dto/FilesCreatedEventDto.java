@@ -0,0 +1,13 @@
+package org.prodet.oci.dto;
+
+import java.util.List;
+
+/**
+ * Files were recorded in app_file. {@code generationId} is null for files found by sync; {@code files} lists the
+ * rows only where they are at hand (synchronous generations) and is empty otherwise.
+ */
+public record FilesCreatedEventDto(
+    Long generationId,
+    int count,
+    List<AppFileDto> files
+) {}
@@ -0,0 +1,17 @@
+package org.prodet.oci.dto;
+
+import java.time.OffsetDateTime;
+
+public record GenerationProgressDto(
+    long id,
+    GenerationStatus status,
+    int requestedCount,
+    long createdCount,
+    long createdBytes,
+    OffsetDateTime generationStartedAt,
+    OffsetDateTime generationFinishedAt,
+    Double filesPerSecond,
+    Double bytesPerSecond,
+    Long etaMillis,
+    String errorMessage
+) {}
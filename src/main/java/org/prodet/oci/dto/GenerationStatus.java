@@ -0,0 +1,8 @@
+package org.prodet.oci.dto;
+
+public enum GenerationStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,17 @@
+package org.prodet.oci.dto;
+
+import java.util.List;
+
+/**
+ * @param version changes whenever the page's content does; null for pages that are not versioned
+ */
+public record PageDto<T>(
+    List<T> items,
+    String nextCursor,
+    String version
+) {
+
+    public PageDto(List<T> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+}
@@ -0,0 +1,14 @@
+package org.prodet.oci.dto;
+
+/**
+ * Outcome of reconciling the generated directory with app_file.
+ *
+ * @param inserted files that got a new row
+ * @param skipped  files found without a row that were recorded concurrently by someone else
+ * @param missing  rows whose file no longer exists (removed by the indexer, only counted by a full sync)
+ */
+public record SyncResultDto(
+    long inserted,
+    long skipped,
+    long missing
+) {}
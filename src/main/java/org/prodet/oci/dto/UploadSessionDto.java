@@ -0,0 +1,22 @@
+package org.prodet.oci.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * State of a chunked upload; {@code missingCount} chunks are still to be sent, and {@code missingChunks} lists the
+ * lowest of their indexes (at most {@value #MISSING_LISTED}).
+ */
+public record UploadSessionDto(
+    String id,
+    String fileName,
+    long size,
+    int chunkSize,
+    int chunkCount,
+    int missingCount,
+    List<Integer> missingChunks,
+    OffsetDateTime expiresAt
+) {
+
+    public static final int MISSING_LISTED = 1_000;
+}
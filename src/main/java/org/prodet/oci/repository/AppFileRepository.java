@@ -1,25 +1,51 @@
 package org.prodet.oci.repository;
 
-import java.sql.PreparedStatement;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.time.OffsetDateTime;
-import java.util.HashSet;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 
+import org.prodet.oci.config.properties.IdsProperties;
 import org.prodet.oci.dto.AppFileDto;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class AppFileRepository {
 
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private static final RowMapper<AppFileDto> ROW_MAPPER = (rs, rowNum) -> new AppFileDto(
+        rs.getLong("id"),
+        getNullableLong(rs, "generation_id"),
+        rs.getString("storage_path"),
+        rs.getString("file_name"),
+        rs.getObject("creation_started_at", OffsetDateTime.class),
+        rs.getObject("creation_finished_at", OffsetDateTime.class),
+        rs.getLong("file_size_bytes"),
+        rs.getString("content_encoding"),
+        getNullableLong(rs, "logical_size_bytes")
+    );
+
     private final JdbcTemplate jdbcTemplate;
+    private final IdAllocator ids;
+    private final ChangeCounter changes = new ChangeCounter();
 
-    public AppFileRepository(JdbcTemplate jdbcTemplate) {
+    public AppFileRepository(JdbcTemplate jdbcTemplate, IdsProperties idsProperties) {
         this.jdbcTemplate = jdbcTemplate;
+        this.ids = new IdAllocator(jdbcTemplate, "app_file_seq", idsProperties.getBlockSize());
+    }
+
+    /**
+     * Moves on with every write through this repository; see {@link ChangeCounter}.
+     */
+    public long changeVersion() {
+        return changes.current();
     }
 
     public long insertStarted(String storagePath, String fileName, OffsetDateTime creationStartedAt) {
@@ -27,87 +53,317 @@ public class AppFileRepository {
     }
 
     public long insertStarted(String storagePath, String fileName, OffsetDateTime creationStartedAt, Long generationId) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(
-                "INSERT INTO app_file (storage_path, file_name, creation_started_at, generation_id) VALUES (?, ?, ?, ?)",
-                new String[]{"ID"}
-            );
-            ps.setString(1, storagePath);
-            ps.setString(2, fileName);
-            ps.setObject(3, creationStartedAt);
-            ps.setObject(4, generationId);
-            return ps;
-        }, keyHolder);
-
-        var keys = keyHolder.getKeys();
-        if (keys != null) {
-            Object id = keys.getOrDefault("ID", keys.get("id"));
-            if (id instanceof Number number) {
-                return number.longValue();
+        long id = ids.next();
+        jdbcTemplate.update(
+            "INSERT INTO app_file (id, storage_path, file_name, creation_started_at, generation_id) VALUES (?, ?, ?, ?, ?)",
+            ps -> {
+                ps.setLong(1, id);
+                ps.setString(2, storagePath);
+                ps.setString(3, fileName);
+                ps.setObject(4, creationStartedAt);
+                ps.setObject(5, generationId);
             }
-        }
-
-        Object singleKey = keyHolder.getKey();
-        if (singleKey instanceof Number number) {
-            return number.longValue();
-        }
-
-        throw new IllegalStateException(
-            "Insert did not return a numeric generated id (got: " + (singleKey == null ? "null" : singleKey.getClass().getName()) + ")"
         );
+        changes.changed();
+        return id;
     }
 
     public void updateFinished(long id, OffsetDateTime creationFinishedAt, long fileSizeBytes) {
+        updateFinished(id, creationFinishedAt, fileSizeBytes, null, null);
+    }
+
+    public void updateFinished(long id, OffsetDateTime creationFinishedAt, long fileSizeBytes, String contentEncoding, Long logicalSizeBytes) {
         int updated = jdbcTemplate.update(
-            "UPDATE app_file SET creation_finished_at = ?, file_size_bytes = ? WHERE id = ?",
+            "UPDATE app_file SET creation_finished_at = ?, file_size_bytes = ?, content_encoding = ?, logical_size_bytes = ? WHERE id = ?",
             ps -> {
                 ps.setObject(1, creationFinishedAt);
                 ps.setLong(2, fileSizeBytes);
-                ps.setLong(3, id);
+                ps.setString(3, contentEncoding);
+                ps.setObject(4, logicalSizeBytes);
+                ps.setLong(5, id);
             }
         );
+        changes.changed();
 
         if (updated != 1) {
             throw new IllegalStateException("Expected to update 1 row for app_file id=" + id + ", but updated " + updated);
         }
     }
 
+    /**
+     * Inserts already finished files with JDBC batching, {@code batchSize} rows per round trip.
+     * Callers are expected to run this inside a transaction so all chunks share one connection.
+     *
+     * @return the ids of the inserted rows, in the order of {@code files}
+     */
+    public long[] insertCompletedBatch(List<CompletedFile> files, int batchSize) {
+        List<Identified> rows = identify(files);
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO app_file (id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, generation_id, content_encoding, logical_size_bytes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            rows,
+            batchSize,
+            (ps, row) -> {
+                CompletedFile file = row.file();
+                ps.setLong(1, row.id());
+                ps.setString(2, file.storagePath());
+                ps.setString(3, file.fileName());
+                ps.setObject(4, file.creationStartedAt());
+                ps.setObject(5, file.creationFinishedAt());
+                ps.setLong(6, file.fileSizeBytes());
+                ps.setObject(7, file.generationId());
+                ps.setString(8, file.contentEncoding());
+                ps.setObject(9, file.logicalSizeBytes());
+            }
+        );
+        changes.changed();
+        return rows.stream().mapToLong(Identified::id).toArray();
+    }
+
+    /**
+     * Records finished files unless a row with the same storage_path and file_name already exists,
+     * {@code batchSize} MERGE statements per round trip. Concurrent callers can still collide on
+     * ux_app_file_path_name; run this in a transaction and retry the whole call on a duplicate key.
+     *
+     * @return number of rows actually inserted
+     */
+    public int mergeCompletedBatch(List<CompletedFile> files, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+            """
+                MERGE INTO app_file t
+                USING (SELECT CAST(? AS VARCHAR2(1024)) storage_path, CAST(? AS VARCHAR2(255)) file_name FROM dual) s
+                ON (t.storage_path = s.storage_path AND t.file_name = s.file_name)
+                WHEN NOT MATCHED THEN
+                    INSERT (id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, generation_id, content_encoding, logical_size_bytes)
+                    VALUES (?, s.storage_path, s.file_name, ?, ?, ?, ?, ?, ?)
+                """,
+            identify(files),
+            batchSize,
+            (ps, row) -> {
+                CompletedFile file = row.file();
+                ps.setString(1, file.storagePath());
+                ps.setString(2, file.fileName());
+                ps.setLong(3, row.id());
+                ps.setObject(4, file.creationStartedAt());
+                ps.setObject(5, file.creationFinishedAt());
+                ps.setLong(6, file.fileSizeBytes());
+                ps.setObject(7, file.generationId());
+                ps.setString(8, file.contentEncoding());
+                ps.setObject(9, file.logicalSizeBytes());
+            }
+        );
+        changes.changed();
+        return sumUpdateCounts(counts);
+    }
+
+    /**
+     * Returns up to {@code limit} rows of a generation with an id above {@code afterId}, in id order; a range scan of
+     * ix_app_file_generation_id_id, so callers can page through a large generation without holding a cursor open.
+     */
+    public List<AppFileDto> findByGenerationIdAfter(long generationId, long afterId, int limit) {
+        return jdbcTemplate.query(
+            """
+                SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
+                FROM (
+                    SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
+                    FROM app_file
+                    WHERE generation_id = ? AND id > ?
+                    ORDER BY id
+                )
+                WHERE ROWNUM <= ?
+                """,
+            ps -> {
+                ps.setLong(1, generationId);
+                ps.setLong(2, afterId);
+                ps.setInt(3, limit);
+            },
+            ROW_MAPPER
+        );
+    }
+
+    public Optional<AppFileDto> findById(long id) {
+        List<AppFileDto> rows = jdbcTemplate.query(
+            """
+                SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
+                FROM app_file
+                WHERE id = ?
+                """,
+            ps -> ps.setLong(1, id),
+            ROW_MAPPER
+        );
+        return rows.stream().findFirst();
+    }
+
     public List<AppFileDto> findLatest(int limit) {
+        return findPage(limit, null);
+    }
+
+    /**
+     * Returns up to {@code limit} rows ordered by (creation_started_at, id) descending, starting right after
+     * {@code after} (or at the newest row when it is null). Every page is an index range scan, however deep.
+     */
+    public List<AppFileDto> findPage(int limit, KeysetCursor after) {
+        if (after == null) {
+            return jdbcTemplate.query(
+                """
+                    SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
+                    FROM (
+                        SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
+                        FROM app_file
+                        ORDER BY creation_started_at DESC, id DESC
+                    )
+                    WHERE ROWNUM <= ?
+                    """,
+                ps -> ps.setInt(1, limit),
+                ROW_MAPPER
+            );
+        }
+
+        OffsetDateTime startedAt = OffsetDateTime.ofInstant(after.timestamp(), ZoneOffset.UTC);
         return jdbcTemplate.query(
             """
-                SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes
+                SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
                 FROM (
-                    SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes
+                    SELECT id, generation_id, storage_path, file_name, creation_started_at, creation_finished_at, file_size_bytes, content_encoding, logical_size_bytes
                     FROM app_file
+                    WHERE creation_started_at <= ?
+                      AND (creation_started_at < ? OR id < ?)
                     ORDER BY creation_started_at DESC, id DESC
                 )
                 WHERE ROWNUM <= ?
                 """,
-            ps -> ps.setInt(1, limit),
-            (rs, rowNum) -> new AppFileDto(
-                rs.getLong("id"),
-                getNullableLong(rs, "generation_id"),
-                rs.getString("storage_path"),
-                rs.getString("file_name"),
-                rs.getObject("creation_started_at", OffsetDateTime.class),
-                rs.getObject("creation_finished_at", OffsetDateTime.class),
-                rs.getLong("file_size_bytes")
-            )
+            ps -> {
+                ps.setObject(1, startedAt);
+                ps.setObject(2, startedAt);
+                ps.setLong(3, after.id());
+                ps.setInt(4, limit);
+            },
+            ROW_MAPPER
+        );
+    }
+
+    public static KeysetCursor cursorOf(AppFileDto row) {
+        return new KeysetCursor(row.creationStartedAt().toInstant(), row.id());
+    }
+
+    /**
+     * One page of {@code (storage_path, file_name)} of the rows stored in {@code root} or any directory below it,
+     * ordered by storage_path then file_name and starting after {@code after} (null for the first page). Each page
+     * is a short range scan of ux_app_file_path_name, so no cursor stays open while the caller works through the
+     * rows. The range also takes in siblings that merely start with the same characters (e.g.
+     * {@code generated-old}); callers skip directories they do not expect.
+     * <p>
+     * The order is the session's; it must be binary (on Oracle NLS_SORT=BINARY, see the prod connection init SQL)
+     * for callers that compare names in Java.
+     */
+    public List<StoredName> findFileNamesUnder(Path root, StoredName after, int limit) {
+        String from = root.toString();
+        String to = from + (char) (root.getFileSystem().getSeparator().charAt(0) + 1);
+        String keyset = after == null ? "" : " AND (storage_path > ? OR (storage_path = ? AND file_name > ?))";
+        return jdbcTemplate.query(
+            """
+                SELECT storage_path, file_name FROM (
+                    SELECT storage_path, file_name
+                    FROM app_file
+                    WHERE storage_path >= ? AND storage_path < ?%s
+                    ORDER BY storage_path, file_name
+                )
+                WHERE ROWNUM <= ?
+                """.formatted(keyset),
+            ps -> {
+                int index = 1;
+                ps.setString(index++, from);
+                ps.setString(index++, to);
+                if (after != null) {
+                    ps.setString(index++, after.storagePath());
+                    ps.setString(index++, after.storagePath());
+                    ps.setString(index++, after.fileName());
+                }
+                ps.setInt(index, limit);
+            },
+            (rs, rowNum) -> new StoredName(rs.getString(1), rs.getString(2))
         );
     }
 
-    public Set<String> findFileNamesByStoragePath(String storagePath) {
-        List<String> names = jdbcTemplate.query(
-            "SELECT file_name FROM app_file WHERE storage_path = ?",
-            ps -> ps.setString(1, storagePath),
-            (rs, rowNum) -> rs.getString("file_name")
+    public int deleteByStoragePathAndFileNames(String storagePath, Collection<String> fileNames) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+            "DELETE FROM app_file WHERE storage_path = ? AND file_name = ?",
+            fileNames,
+            DELETE_BATCH_SIZE,
+            (ps, fileName) -> {
+                ps.setString(1, storagePath);
+                ps.setString(2, fileName);
+            }
         );
-        return new HashSet<>(names);
+        changes.changed();
+        return sumUpdateCounts(counts);
     }
 
-    public int deleteAll() {
-        return jdbcTemplate.update("DELETE FROM app_file");
+    /**
+     * Points rows at the directory their file was moved to; rows that do not exist are ignored.
+     *
+     * @return number of rows updated
+     */
+    public int updateStoragePaths(List<MovedFile> moves, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate(
+            "UPDATE app_file SET storage_path = ? WHERE storage_path = ? AND file_name = ?",
+            moves,
+            batchSize,
+            (ps, move) -> {
+                ps.setString(1, move.toStoragePath());
+                ps.setString(2, move.fromStoragePath());
+                ps.setString(3, move.fileName());
+            }
+        );
+        changes.changed();
+        return sumUpdateCounts(counts);
+    }
+
+    public int deleteByGenerationId(long generationId) {
+        int deleted = jdbcTemplate.update("DELETE FROM app_file WHERE generation_id = ?", generationId);
+        changes.changed();
+        return deleted;
+    }
+
+    /**
+     * The database clock; clean compares it with {@code created_at}, which the database fills in on insert.
+     */
+    public OffsetDateTime currentTimestamp() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP FROM dual", (rs, rowNum) -> rs.getObject(1, OffsetDateTime.class));
+    }
+
+    /**
+     * Deletes at most {@code limit} rows created up to {@code createdUpTo}; callers repeat until nothing is left, to
+     * keep each statement's undo small. Ids come from per-instance blocks and are not ordered by insertion time, so
+     * rows are chosen by {@code created_at} (indexed) rather than by id.
+     */
+    public int deleteCreatedUpTo(OffsetDateTime createdUpTo, int limit) {
+        int deleted = jdbcTemplate.update(
+            "DELETE FROM app_file WHERE created_at <= ? AND ROWNUM <= ?", createdUpTo, limit);
+        changes.changed();
+        return deleted;
+    }
+
+    /**
+     * Pairs every file with a newly allocated id; rows a MERGE skips leave their id unused.
+     */
+    private List<Identified> identify(List<CompletedFile> files) {
+        List<Identified> rows = new ArrayList<>(files.size());
+        for (CompletedFile file : files) {
+            rows.add(new Identified(ids.next(), file));
+        }
+        return rows;
+    }
+
+    private static int sumUpdateCounts(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0) {
+                    total += count;
+                }
+            }
+        }
+        return total;
     }
 
     private static Long getNullableLong(ResultSet rs, String columnLabel) throws java.sql.SQLException {
@@ -116,4 +372,24 @@ public class AppFileRepository {
         if (value instanceof Number number) return number.longValue();
         throw new IllegalStateException("Unsupported numeric type for " + columnLabel + ": " + value.getClass().getName());
     }
+
+    public record StoredName(String storagePath, String fileName) {
+    }
+
+    private record Identified(long id, CompletedFile file) {
+    }
+
+    public record MovedFile(String fileName, String fromStoragePath, String toStoragePath) {
+    }
+
+    public record CompletedFile(
+        String storagePath,
+        String fileName,
+        Long generationId,
+        OffsetDateTime creationStartedAt,
+        OffsetDateTime creationFinishedAt,
+        long fileSizeBytes,
+        String contentEncoding,
+        Long logicalSizeBytes
+    ) {}
 }
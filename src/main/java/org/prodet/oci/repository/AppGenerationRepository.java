@@ -1,96 +1,256 @@
 package org.prodet.oci.repository;
 
+import org.prodet.oci.config.properties.IdsProperties;
 import org.prodet.oci.dto.AppGenerationDto;
+import org.prodet.oci.dto.GenerationStatus;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public class AppGenerationRepository {
 
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final RowMapper<AppGenerationDto> ROW_MAPPER = (rs, rowNum) -> {
+        long id = rs.getLong("id");
+        int requestedCount = rs.getInt("requested_count");
+        Integer createdCount = rs.getObject("created_count", Integer.class);
+        OffsetDateTime startedAt = rs.getObject("generation_started_at", OffsetDateTime.class);
+        OffsetDateTime finishedAt = rs.getObject("generation_finished_at", OffsetDateTime.class);
+        Long durationMillis = finishedAt == null ? null : Duration.between(startedAt, finishedAt).toMillis();
+        GenerationStatus status = GenerationStatus.valueOf(rs.getString("status"));
+        Long createdBytes = rs.getObject("created_bytes", Long.class);
+        String errorMessage = rs.getString("error_message");
+        return new AppGenerationDto(id, requestedCount, createdCount, startedAt, finishedAt, durationMillis, status, createdBytes, errorMessage);
+    };
+
     private final JdbcTemplate jdbcTemplate;
+    private final IdAllocator ids;
+    private final ChangeCounter changes = new ChangeCounter();
 
-    public AppGenerationRepository(JdbcTemplate jdbcTemplate) {
+    public AppGenerationRepository(JdbcTemplate jdbcTemplate, IdsProperties idsProperties) {
         this.jdbcTemplate = jdbcTemplate;
+        this.ids = new IdAllocator(jdbcTemplate, "app_generation_seq", idsProperties.getBlockSize());
+    }
+
+    /**
+     * Moves on with every write through this repository; see {@link ChangeCounter}.
+     */
+    public long changeVersion() {
+        return changes.current();
     }
 
     public long insertStarted(int requestedCount, OffsetDateTime generationStartedAt) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-        jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(
-                "INSERT INTO app_generation (requested_count, generation_started_at) VALUES (?, ?)",
-                new String[]{"ID"}
-            );
-            ps.setInt(1, requestedCount);
-            ps.setObject(2, generationStartedAt);
-            return ps;
-        }, keyHolder);
-
-        var keys = keyHolder.getKeys();
-        if (keys != null) {
-            Object id = keys.getOrDefault("ID", keys.get("id"));
-            if (id instanceof Number number) {
-                return number.longValue();
+        return insert(requestedCount, generationStartedAt, GenerationStatus.RUNNING);
+    }
+
+    public long insertQueued(int requestedCount, OffsetDateTime submittedAt) {
+        return insert(requestedCount, submittedAt, GenerationStatus.QUEUED);
+    }
+
+    private long insert(int requestedCount, OffsetDateTime generationStartedAt, GenerationStatus status) {
+        long id = ids.next();
+        jdbcTemplate.update(
+            "INSERT INTO app_generation (id, requested_count, generation_started_at, status) VALUES (?, ?, ?, ?)",
+            ps -> {
+                ps.setLong(1, id);
+                ps.setInt(2, requestedCount);
+                ps.setObject(3, generationStartedAt);
+                ps.setString(4, status.name());
             }
-        }
+        );
+        changes.changed();
+        return id;
+    }
+
+    public void markRunning(long id, OffsetDateTime generationStartedAt) {
+        int updated = jdbcTemplate.update(
+            "UPDATE app_generation SET status = ?, generation_started_at = ? WHERE id = ?",
+            ps -> {
+                ps.setString(1, GenerationStatus.RUNNING.name());
+                ps.setObject(2, generationStartedAt);
+                ps.setLong(3, id);
+            }
+        );
+        changes.changed();
 
-        Object singleKey = keyHolder.getKey();
-        if (singleKey instanceof Number number) {
-            return number.longValue();
+        if (updated != 1) {
+            throw new IllegalStateException("Expected to update 1 row for app_generation id=" + id + ", but updated " + updated);
         }
+    }
 
-        throw new IllegalStateException(
-            "Insert did not return a numeric generated id (got: " + (singleKey == null ? "null" : singleKey.getClass().getName()) + ")"
+    public void updateProgress(long id, int createdCount, long createdBytes) {
+        jdbcTemplate.update(
+            "UPDATE app_generation SET created_count = ?, created_bytes = ? WHERE id = ?",
+            ps -> {
+                ps.setInt(1, createdCount);
+                ps.setLong(2, createdBytes);
+                ps.setLong(3, id);
+            }
         );
+        changes.changed();
     }
 
-    public void updateFinished(long id, OffsetDateTime generationFinishedAt, int createdCount) {
+    /**
+     * Starts a queued generation; a no-op when it is running already (another task of it got there first).
+     */
+    public boolean markRunningIfQueued(long id, OffsetDateTime generationStartedAt) {
         int updated = jdbcTemplate.update(
-            "UPDATE app_generation SET generation_finished_at = ?, created_count = ? WHERE id = ?",
+            "UPDATE app_generation SET status = ?, generation_started_at = ? WHERE id = ? AND status = ?",
+            ps -> {
+                ps.setString(1, GenerationStatus.RUNNING.name());
+                ps.setObject(2, generationStartedAt);
+                ps.setLong(3, id);
+                ps.setString(4, GenerationStatus.QUEUED.name());
+            }
+        );
+        changes.changed();
+        return updated == 1;
+    }
+
+    /**
+     * Adds a finished task's files to the generation's totals. Also locks the generation's row until the caller's
+     * transaction ends, which serializes the tasks finishing around the same time (see {@link #finishIfTasksDone}).
+     */
+    public void addProgress(long id, int createdCount, long createdBytes) {
+        jdbcTemplate.update(
+            "UPDATE app_generation SET created_count = COALESCE(created_count, 0) + ?, created_bytes = COALESCE(created_bytes, 0) + ? WHERE id = ?",
+            ps -> {
+                ps.setInt(1, createdCount);
+                ps.setLong(2, createdBytes);
+                ps.setLong(3, id);
+            }
+        );
+        changes.changed();
+    }
+
+    /**
+     * Completes a running generation if all its tasks are. Call after {@link #addProgress} in the same transaction:
+     * the row lock taken there makes the last two tasks finish one after the other, so the second sees the first
+     * one committed and exactly one of them completes the generation.
+     *
+     * @return whether this call completed the generation
+     */
+    public boolean finishIfTasksDone(long id, OffsetDateTime generationFinishedAt) {
+        int updated = jdbcTemplate.update(
+            """
+                UPDATE app_generation g
+                SET status = ?, generation_finished_at = ?
+                WHERE g.id = ? AND g.status = ?
+                  AND NOT EXISTS (SELECT 1 FROM app_generation_task t WHERE t.generation_id = g.id AND t.status <> 'COMPLETED')
+                """,
+            ps -> {
+                ps.setString(1, GenerationStatus.COMPLETED.name());
+                ps.setObject(2, generationFinishedAt);
+                ps.setLong(3, id);
+                ps.setString(4, GenerationStatus.RUNNING.name());
+            }
+        );
+        changes.changed();
+        return updated == 1;
+    }
+
+    public void updateFinished(long id, OffsetDateTime generationFinishedAt, int createdCount, long createdBytes) {
+        int updated = jdbcTemplate.update(
+            "UPDATE app_generation SET generation_finished_at = ?, created_count = ?, created_bytes = ?, status = ? WHERE id = ?",
             ps -> {
                 ps.setObject(1, generationFinishedAt);
                 ps.setInt(2, createdCount);
-                ps.setLong(3, id);
+                ps.setLong(3, createdBytes);
+                ps.setString(4, GenerationStatus.COMPLETED.name());
+                ps.setLong(5, id);
             }
         );
+        changes.changed();
 
         if (updated != 1) {
             throw new IllegalStateException("Expected to update 1 row for app_generation id=" + id + ", but updated " + updated);
         }
     }
 
+    public void markFailed(long id, OffsetDateTime generationFinishedAt, String errorMessage) {
+        String message = errorMessage == null || errorMessage.length() <= MAX_ERROR_LENGTH
+            ? errorMessage
+            : errorMessage.substring(0, MAX_ERROR_LENGTH);
+        jdbcTemplate.update(
+            """
+                UPDATE app_generation
+                SET status = ?, error_message = ?,
+                    generation_finished_at = CASE WHEN generation_started_at > ? THEN generation_started_at ELSE ? END
+                WHERE id = ?
+                """,
+            ps -> {
+                ps.setString(1, GenerationStatus.FAILED.name());
+                ps.setString(2, message);
+                ps.setObject(3, generationFinishedAt);
+                ps.setObject(4, generationFinishedAt);
+                ps.setLong(5, id);
+            }
+        );
+        changes.changed();
+    }
+
+    public Optional<AppGenerationDto> findById(long id) {
+        List<AppGenerationDto> rows = jdbcTemplate.query(
+            """
+                SELECT id, requested_count, created_count, generation_started_at, generation_finished_at, status, created_bytes, error_message
+                FROM app_generation
+                WHERE id = ?
+                """,
+            ps -> ps.setLong(1, id),
+            ROW_MAPPER
+        );
+        return rows.stream().findFirst();
+    }
+
     public List<AppGenerationDto> findLatest(int limit) {
+        return findPage(limit, null);
+    }
+
+    /**
+     * Returns up to {@code limit} generations ordered by id descending, starting right after {@code after}.
+     */
+    public List<AppGenerationDto> findPage(int limit, KeysetCursor after) {
+        long afterId = after == null ? Long.MAX_VALUE : after.id();
         return jdbcTemplate.query(
             """
-                SELECT id, requested_count, created_count, generation_started_at, generation_finished_at
+                SELECT id, requested_count, created_count, generation_started_at, generation_finished_at, status, created_bytes, error_message
                 FROM (
-                    SELECT id, requested_count, created_count, generation_started_at, generation_finished_at
+                    SELECT id, requested_count, created_count, generation_started_at, generation_finished_at, status, created_bytes, error_message
                     FROM app_generation
+                    WHERE id < ?
                     ORDER BY id DESC
                 )
                 WHERE ROWNUM <= ?
                 """,
-            ps -> ps.setInt(1, limit),
-            (rs, rowNum) -> {
-                long id = rs.getLong("id");
-                int requestedCount = rs.getInt("requested_count");
-                Integer createdCount = rs.getObject("created_count", Integer.class);
-                OffsetDateTime startedAt = rs.getObject("generation_started_at", OffsetDateTime.class);
-                OffsetDateTime finishedAt = rs.getObject("generation_finished_at", OffsetDateTime.class);
-                Long durationMillis = finishedAt == null ? null : Duration.between(startedAt, finishedAt).toMillis();
-                return new AppGenerationDto(id, requestedCount, createdCount, startedAt, finishedAt, durationMillis);
-            }
+            ps -> {
+                ps.setLong(1, afterId);
+                ps.setInt(2, limit);
+            },
+            ROW_MAPPER
         );
     }
 
-    public int deleteAll() {
-        return jdbcTemplate.update("DELETE FROM app_generation");
+    /**
+     * Deletes generations created up to {@code createdUpTo} that are no longer queued or running and have no files left.
+     */
+    public int deleteInactiveCreatedUpTo(OffsetDateTime createdUpTo) {
+        int deleted = jdbcTemplate.update(
+            """
+                DELETE FROM app_generation g
+                WHERE g.created_at <= ?
+                  AND g.status NOT IN (?, ?)
+                  AND NOT EXISTS (SELECT 1 FROM app_file f WHERE f.generation_id = g.id)
+                """,
+            createdUpTo, GenerationStatus.QUEUED.name(), GenerationStatus.RUNNING.name()
+        );
+        changes.changed();
+        return deleted;
     }
 }
-
@@ -0,0 +1,188 @@
+package org.prodet.oci.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Task rows of distributed generations (app_generation_task). A task moves QUEUED -> RUNNING (claimed, with a lease)
+ * -> COMPLETED, or back to QUEUED when its worker gives it up, or to FAILED.
+ */
+@Repository
+public class AppGenerationTaskRepository {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final RowMapper<GenerationTask> ROW_MAPPER = (rs, rowNum) -> new GenerationTask(
+        rs.getLong("generation_id"),
+        rs.getInt("task_index"),
+        rs.getInt("file_offset"),
+        rs.getInt("file_count"),
+        rs.getInt("xml_count"),
+        rs.getInt("attempts")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AppGenerationTaskRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertQueued(List<GenerationTask> tasks, int batchSize) {
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO app_generation_task (generation_id, task_index, file_offset, file_count, xml_count) VALUES (?, ?, ?, ?, ?)",
+            tasks,
+            batchSize,
+            (ps, task) -> {
+                ps.setLong(1, task.generationId());
+                ps.setInt(2, task.taskIndex());
+                ps.setInt(3, task.fileOffset());
+                ps.setInt(4, task.fileCount());
+                ps.setInt(5, task.xmlCount());
+            }
+        );
+    }
+
+    /**
+     * Claims the oldest queued task, or a running one whose lease has expired and that has attempts left, for
+     * {@code workerId} until {@code leaseUntil}; tasks of failed generations are left alone. Rows other transactions
+     * are claiming are skipped rather than waited for, so concurrent workers (on any instance) never block each other
+     * or get the same task. Must run in a transaction.
+     */
+    public Optional<GenerationTask> claimNext(String workerId, OffsetDateTime now, OffsetDateTime leaseUntil, int maxAttempts) {
+        // Only the row actually fetched is locked with SKIP LOCKED, hence max rows 1 instead of ROWNUM, which
+        // Oracle would apply before skipping locked rows.
+        List<GenerationTask> rows = jdbcTemplate.query(
+            connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                    """
+                        SELECT t.generation_id, t.task_index, t.file_offset, t.file_count, t.xml_count, t.attempts
+                        FROM app_generation_task t
+                        WHERE (t.status = 'QUEUED' OR (t.status = 'RUNNING' AND t.lease_until < ? AND t.attempts < ?))
+                          AND EXISTS (SELECT 1 FROM app_generation g WHERE g.id = t.generation_id AND g.status <> 'FAILED')
+                        ORDER BY t.generation_id, t.task_index
+                        FOR UPDATE SKIP LOCKED
+                        """
+                );
+                ps.setObject(1, now);
+                ps.setInt(2, maxAttempts);
+                ps.setMaxRows(1);
+                ps.setFetchSize(1);
+                return ps;
+            },
+            ROW_MAPPER
+        );
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        GenerationTask task = rows.get(0);
+        jdbcTemplate.update(
+            """
+                UPDATE app_generation_task
+                SET status = 'RUNNING', claimed_by = ?, lease_until = ?, attempts = attempts + 1
+                WHERE generation_id = ? AND task_index = ?
+                """,
+            workerId, leaseUntil, task.generationId(), task.taskIndex()
+        );
+        return Optional.of(new GenerationTask(task.generationId(), task.taskIndex(), task.fileOffset(), task.fileCount(),
+            task.xmlCount(), task.attempts() + 1));
+    }
+
+    /**
+     * Marks the task completed if {@code workerId} still holds its claim.
+     *
+     * @return false when the claim was lost (the lease expired and another worker took the task over)
+     */
+    public boolean complete(GenerationTask task, String workerId, OffsetDateTime finishedAt, long createdBytes) {
+        int updated = jdbcTemplate.update(
+            """
+                UPDATE app_generation_task
+                SET status = 'COMPLETED', finished_at = ?, created_bytes = ?, lease_until = NULL
+                WHERE generation_id = ? AND task_index = ? AND status = 'RUNNING' AND claimed_by = ?
+                """,
+            finishedAt, createdBytes, task.generationId(), task.taskIndex(), workerId
+        );
+        return updated == 1;
+    }
+
+    /**
+     * Gives a claimed task up: back to the queue, or FAILED once it has been claimed {@code maxAttempts} times.
+     *
+     * @return true when the task failed for good
+     */
+    public boolean release(GenerationTask task, String workerId, String errorMessage, int maxAttempts) {
+        boolean failed = task.attempts() >= maxAttempts;
+        jdbcTemplate.update(
+            """
+                UPDATE app_generation_task
+                SET status = ?, error_message = ?, lease_until = NULL
+                WHERE generation_id = ? AND task_index = ? AND status = 'RUNNING' AND claimed_by = ?
+                """,
+            failed ? "FAILED" : "QUEUED", truncate(errorMessage), task.generationId(), task.taskIndex(), workerId
+        );
+        return failed;
+    }
+
+    /**
+     * Fails running tasks whose lease has expired after their last attempt, i.e. whose worker died every time it ran
+     * them. Must run in a transaction.
+     *
+     * @return ids of the generations those tasks belong to
+     */
+    public List<Long> failExpired(OffsetDateTime now, int maxAttempts, String errorMessage) {
+        List<GenerationTask> expired = jdbcTemplate.query(
+            """
+                SELECT generation_id, task_index, file_offset, file_count, xml_count, attempts
+                FROM app_generation_task
+                WHERE status = 'RUNNING' AND lease_until < ? AND attempts >= ?
+                FOR UPDATE SKIP LOCKED
+                """,
+            ROW_MAPPER,
+            now, maxAttempts
+        );
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+        jdbcTemplate.batchUpdate(
+            """
+                UPDATE app_generation_task
+                SET status = 'FAILED', error_message = ?, lease_until = NULL
+                WHERE generation_id = ? AND task_index = ? AND status = 'RUNNING'
+                """,
+            expired,
+            expired.size(),
+            (ps, task) -> {
+                ps.setString(1, truncate(errorMessage));
+                ps.setLong(2, task.generationId());
+                ps.setInt(3, task.taskIndex());
+            }
+        );
+        return expired.stream().map(GenerationTask::generationId).distinct().toList();
+    }
+
+    /**
+     * Fails the generation's tasks nobody has claimed yet, so no worker starts on a failed generation.
+     */
+    public int failQueued(long generationId, String errorMessage) {
+        return jdbcTemplate.update(
+            "UPDATE app_generation_task SET status = 'FAILED', error_message = ? WHERE generation_id = ? AND status = 'QUEUED'",
+            truncate(errorMessage), generationId
+        );
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Files {@code fileOffset .. fileOffset + fileCount - 1} of a generation, {@code xmlCount} of them xml.
+     */
+    public record GenerationTask(long generationId, int taskIndex, int fileOffset, int fileCount, int xmlCount, int attempts) {
+    }
+}
@@ -0,0 +1,33 @@
+package org.prodet.oci.repository;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of a table's content as written through this application: it moves on with every write, and again when
+ * the surrounding transaction completes, so a read that saw the same version before and after cannot have missed a
+ * change made here. Changes from outside the application (other instances, manual SQL) are not counted.
+ */
+public final class ChangeCounter {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    void changed() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Readers may still see the old rows until commit; make anything they cached meanwhile outdated too.
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.prodet.oci.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out ids from a pooled sequence, so rows get their id before they are inserted: each NEXTVAL reserves the
+ * block [value, value + blockSize), which requires the sequence to increment by the block size.
+ * <p>
+ * Handing out an id is a single atomic increment; only an exhausted block costs a round trip. Threads that find the
+ * block exhausted at the same moment each fetch one, and all but the first are dropped, so ids have gaps (as they
+ * do anyway after a restart) but are never handed out twice.
+ */
+public final class IdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequenceName;
+    private final String nextValueSql;
+    private final int blockSize;
+    private final AtomicReference<Block> block = new AtomicReference<>(new Block(0, 0));
+
+    public IdAllocator(JdbcTemplate jdbcTemplate, String sequenceName, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("ids.block-size must be at least 1, got " + blockSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceName = sequenceName;
+        this.nextValueSql = "SELECT " + sequenceName + ".NEXTVAL FROM dual";
+        this.blockSize = blockSize;
+    }
+
+    public long next() {
+        while (true) {
+            Block current = block.get();
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                return id;
+            }
+            block.compareAndSet(current, fetch(current));
+        }
+    }
+
+    private Block fetch(Block previous) {
+        Long value = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+        if (value == null) {
+            throw new IllegalStateException(sequenceName + ".NEXTVAL returned null");
+        }
+        long previousStart = previous.end - blockSize;
+        if (previous.end > 0 && value < previous.end && value + blockSize > previousStart) {
+            // Blocks of a sequence never overlap unless it increments by less than the block size.
+            throw new IllegalStateException(sequenceName + " increments by less than ids.block-size=" + blockSize
+                + "; alter the sequence's INCREMENT BY to match");
+        }
+        return new Block(value, value + blockSize);
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.prodet.oci.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a listing page: the row's sort timestamp (if the listing has one) and its id.
+ * Clients only see the opaque {@link #encode()} form.
+ */
+public record KeysetCursor(Instant timestamp, long id) {
+
+    public static KeysetCursor ofId(long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public String encode() {
+        String raw = (timestamp == null ? "" : timestamp.getEpochSecond() + "." + timestamp.getNano()) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(':');
+            long id = Long.parseLong(raw.substring(sep + 1));
+            String ts = raw.substring(0, sep);
+            if (ts.isEmpty()) {
+                return ofId(id);
+            }
+            int dot = ts.indexOf('.');
+            Instant timestamp = Instant.ofEpochSecond(Long.parseLong(ts.substring(0, dot)), Long.parseLong(ts.substring(dot + 1)));
+            return new KeysetCursor(timestamp, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
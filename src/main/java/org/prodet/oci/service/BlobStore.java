@@ -0,0 +1,205 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PostConstruct;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Optional content-addressed store for generated files ({@code storage.dedup.enabled=true}).
+ * <p>
+ * Each distinct stored content is written once to {@code <storage.location>/.blobs/<aa>/<sha256>}, and a generated file
+ * becomes a hard link to it, so generating is a single link call per file and the page cache holds each content once.
+ * Everything that reads generated files keeps seeing ordinary files.
+ * <p>
+ * The file system's link count is the reference count: deleting a generated file in any way (clean, the indexer,
+ * by hand) drops it, and {@link #collectGarbage()} removes blobs no generated file links to any more. Blobs are
+ * read-only, which also makes their links read-only, so no in-place write can change other files' content.
+ * When a blob reaches the file system's link limit a replica ({@code <sha256>.1}, ...) takes over.
+ */
+@Component
+public class BlobStore {
+
+    public static final String BLOBS_DIR = ".blobs";
+
+    /**
+     * Reason of the EMLINK error the JDK reports when a file already has the maximum number of links.
+     */
+    private static final String TOO_MANY_LINKS = "Too many links";
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    private final Path root;
+    private final boolean enabled;
+
+    /**
+     * Replica currently linked to, per content hash.
+     */
+    private final Map<String, Integer> replicas = new ConcurrentHashMap<>();
+    /**
+     * Linking shares the read lock; garbage collection takes the write lock so it never removes a blob that is
+     * about to be linked.
+     */
+    private final ReadWriteLock gcLock = new ReentrantReadWriteLock();
+
+    public BlobStore(StorageProperties storageProperties) {
+        this.root = Paths.get(storageProperties.getLocation()).resolve(BLOBS_DIR).toAbsolutePath().normalize();
+        this.enabled = storageProperties.getDedup().isEnabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Makes {@code target} (replacing it) a hard link to the blob holding {@code content}, whose SHA-256 is {@code sha256}.
+     *
+     * @return the file size
+     */
+    public long link(String sha256, ByteBuffer content, Path target) throws IOException {
+        gcLock.readLock().lock();
+        try {
+            int replica = replicas.getOrDefault(sha256, 0);
+            while (true) {
+                Path blob = ensureBlob(sha256, content, replica);
+                try {
+                    linkReplacing(target, blob);
+                    return content.remaining();
+                } catch (FileSystemException e) {
+                    if (!TOO_MANY_LINKS.equals(e.getReason())) {
+                        throw e;
+                    }
+                    int next = replica + 1;
+                    replicas.merge(sha256, next, Math::max);
+                    replica = next;
+                }
+            }
+        } finally {
+            gcLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes blobs that no generated file links to.
+     *
+     * @return number of blobs removed
+     */
+    public long collectGarbage() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        long[] removed = {0};
+        gcLock.writeLock().lock();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && linkCount(file) <= 1 && Files.deleteIfExists(file)) {
+                        removed[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                    if (e instanceof NoSuchFileException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw e;
+                }
+            });
+            replicas.clear();
+        } finally {
+            gcLock.writeLock().unlock();
+        }
+        if (removed[0] > 0) {
+            log.info("Removed {} unreferenced blobs", removed[0]);
+        }
+        return removed[0];
+    }
+
+    @PostConstruct
+    void collectGarbageOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (!root.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            throw new IllegalStateException("storage.dedup.enabled needs a file system with hard links and link counts");
+        }
+        try {
+            collectGarbage();
+        } catch (IOException e) {
+            log.warn("Could not collect unreferenced blobs in {}", root, e);
+        }
+    }
+
+    private Path ensureBlob(String sha256, ByteBuffer content, int replica) throws IOException {
+        Path blob = root.resolve(sha256.substring(0, 2)).resolve(replica == 0 ? sha256 : sha256 + "." + replica);
+        if (Files.exists(blob)) {
+            return blob;
+        }
+
+        Files.createDirectories(blob.getParent());
+        Path temp = blob.resolveSibling(blob.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 16) + ".tmp");
+        try {
+            ByteBuffer buffer = content.duplicate();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("r--r--r--"));
+            // A link instead of a rename: if another thread created the blob meanwhile, its inode (and links) stay.
+            Files.createLink(blob, temp);
+        } catch (FileAlreadyExistsException e) {
+            // Created concurrently with the same content.
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return blob;
+    }
+
+    private static void linkReplacing(Path target, Path blob) throws IOException {
+        try {
+            Files.createLink(target, blob);
+        } catch (FileAlreadyExistsException e) {
+            Path temp = target.resolveSibling(target.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 16) + ".tmp");
+            Files.createLink(temp, blob);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException moveError) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static int linkCount(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink");
+    }
+}
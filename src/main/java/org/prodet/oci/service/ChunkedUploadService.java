@@ -0,0 +1,401 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PostConstruct;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.UploadSessionDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads in numbered chunks on top of {@link StorageService}.
+ * <p>
+ * A session sizes {@code <storage.location>/.uploads/<id>.part} to the final length up front, and every chunk is
+ * written at its own offset through a shared {@link FileChannel}, so chunks can arrive in any order and in parallel.
+ * A chunk counts as received only once all of its bytes are written; a client that lost a connection asks for the
+ * session state and resends the missing ones. Commit renames the file into place, so it becomes visible only
+ * when complete. Sessions idle for {@code storage.uploads.session-timeout} are discarded along with their data.
+ * Chunks smaller than {@code storage.uploads.min-chunk-size}, or more than {@code storage.uploads.max-chunks} of
+ * them, are refused, so a session's bookkeeping and status stay small whatever the client asks for. Commit and abort
+ * wait at most {@code storage.uploads.close-wait} for chunk writes in progress.
+ * <p>
+ * Sessions are kept in memory; part files left over from a previous run are removed on startup.
+ */
+@Service
+public class ChunkedUploadService {
+
+    public static final String SESSIONS_DIR = ".uploads";
+
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private final StorageService storageService;
+    private final Path sessionsDir;
+    private final int defaultChunkSize;
+    private final long minChunkSize;
+    private final long maxChunkSize;
+    private final int maxChunks;
+    private final long maxFileSize;
+    private final int maxSessions;
+    private final Duration sessionTimeout;
+    private final long closeWaitNanos;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    /**
+     * Sessions open or being opened; a slot is reserved before the part file is created and freed when the session ends.
+     */
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    public ChunkedUploadService(StorageService storageService, StorageProperties storageProperties) {
+        StorageProperties.Uploads uploads = storageProperties.getUploads();
+        this.storageService = storageService;
+        this.sessionsDir = Paths.get(storageProperties.getLocation()).resolve(SESSIONS_DIR).toAbsolutePath().normalize();
+        this.maxChunkSize = Math.min(Integer.MAX_VALUE, uploads.getMaxChunkSize().toBytes());
+        this.minChunkSize = Math.min(maxChunkSize, Math.max(1, uploads.getMinChunkSize().toBytes()));
+        this.defaultChunkSize = (int) Math.min(maxChunkSize, Math.max(minChunkSize, uploads.getChunkSize().toBytes()));
+        this.maxChunks = Math.max(1, uploads.getMaxChunks());
+        this.maxFileSize = uploads.getMaxFileSize().toBytes();
+        this.maxSessions = uploads.getMaxSessions();
+        this.sessionTimeout = uploads.getSessionTimeout();
+        this.closeWaitNanos = uploads.getCloseWait().toNanos();
+    }
+
+    /**
+     * Opens a session for a file of {@code size} bytes.
+     *
+     * @throws IllegalArgumentException for an unusable name, size or chunk size
+     * @throws IllegalStateException    when {@code storage.uploads.max-sessions} sessions are already open
+     */
+    public UploadSessionDto create(String fileName, long size, Integer chunkSize) {
+        if (fileName == null || fileName.isBlank() || fileName.startsWith(".")
+            || !Paths.get(fileName).getFileName().toString().equals(fileName)) {
+            throw new IllegalArgumentException("fileName must be a plain file name");
+        }
+        if (size < 0 || size > maxFileSize) {
+            throw new IllegalArgumentException("size must be between 0 and " + maxFileSize);
+        }
+        int effectiveChunkSize = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (effectiveChunkSize < 1 || effectiveChunkSize > maxChunkSize
+            || (effectiveChunkSize < minChunkSize && effectiveChunkSize < size)) {
+            throw new IllegalArgumentException("chunkSize must be between " + minChunkSize + " and " + maxChunkSize);
+        }
+        long chunkCount = (size + effectiveChunkSize - 1) / effectiveChunkSize;
+        if (chunkCount > maxChunks) {
+            throw new IllegalArgumentException("chunkSize is too small for a file of " + size + " bytes; at most "
+                + maxChunks + " chunks are allowed");
+        }
+        if (openSessions.incrementAndGet() > maxSessions) {
+            openSessions.decrementAndGet();
+            throw new IllegalStateException("Too many open upload sessions");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path data = sessionsDir.resolve(id + ".part");
+        FileChannel channel = null;
+        try {
+            Files.createDirectories(sessionsDir);
+            channel = FileChannel.open(data, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (size > 0) {
+                // Extend to the final length so every chunk is an in-place positional write.
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            deleteQuietly(data);
+            openSessions.decrementAndGet();
+            throw new RuntimeException("Failed to open upload session for " + fileName, e);
+        }
+
+        UploadSession session = new UploadSession(id, fileName, size, effectiveChunkSize, (int) chunkCount, data, channel);
+        sessions.put(id, session);
+        return session.toDto();
+    }
+
+    public Optional<UploadSessionDto> status(String id) {
+        return Optional.ofNullable(sessions.get(id)).map(UploadSession::toDto);
+    }
+
+    /**
+     * Writes chunk {@code index} from {@code content}, which must hold exactly that chunk's bytes. Resending a chunk
+     * overwrites it with the same bytes, so retries are safe.
+     *
+     * @return the session state, or empty if there is no such session
+     * @throws IllegalArgumentException for an index out of range or a body of the wrong length
+     */
+    public Optional<UploadSessionDto> writeChunk(String id, int index, InputStream content) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (index < 0 || index >= session.chunkCount) {
+            throw new IllegalArgumentException("chunk index must be between 0 and " + (session.chunkCount - 1));
+        }
+
+        session.lock.readLock().lock();
+        try {
+            if (session.closed) {
+                return Optional.empty();
+            }
+            session.touch();
+            long offset = (long) index * session.chunkSize;
+            long expected = Math.min(session.chunkSize, session.size - offset);
+            long written = writeAt(session.channel, offset, expected, content);
+            if (written != expected) {
+                throw new IllegalArgumentException("chunk " + index + " must be " + expected + " bytes, got " + written);
+            }
+            session.markReceived(index);
+            return Optional.of(session.toDto());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write chunk " + index + " of upload " + id, e);
+        } finally {
+            session.touch();
+            session.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the completed file into storage under its name and ends the session.
+     *
+     * @return the final session state, or empty if there is no such session
+     * @throws IllegalStateException while chunks are still missing, or still being written after the close wait
+     */
+    public Optional<UploadSessionDto> commit(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+
+        lockForClose(session);
+        try {
+            if (session.closed) {
+                return Optional.empty();
+            }
+            UploadSessionDto state = session.toDto();
+            if (state.missingCount() > 0) {
+                throw new IllegalStateException(state.missingCount() + " chunks of upload " + id + " are still missing");
+            }
+            try {
+                session.channel.force(false);
+                session.channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to complete upload " + id, e);
+            }
+            session.closed = true;
+            sessions.remove(id);
+            openSessions.decrementAndGet();
+            try {
+                storageService.store(session.fileName, session.data);
+            } catch (RuntimeException e) {
+                deleteQuietly(session.data);
+                throw e;
+            }
+            return Optional.of(state);
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ends a session and discards its data.
+     *
+     * @return whether the session existed
+     * @throws IllegalStateException when chunks are still being written after the close wait
+     */
+    public boolean abort(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            return false;
+        }
+        lockForClose(session);
+        try {
+            return discard(session);
+        } finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards sessions without chunk activity for {@code storage.uploads.session-timeout}. Sessions with a chunk
+     * still being written are left for the next round.
+     *
+     * @return number of sessions discarded
+     */
+    @Scheduled(fixedDelayString = "${storage.uploads.cleanup-interval:PT1M}")
+    public int expireIdleSessions() {
+        long idleBefore = System.nanoTime() - sessionTimeout.toNanos();
+        int expired = 0;
+        for (UploadSession session : sessions.values()) {
+            if (session.lastActivity - idleBefore > 0 || !session.lock.writeLock().tryLock()) {
+                continue;
+            }
+            try {
+                if (session.lastActivity - idleBefore <= 0 && discard(session)) {
+                    expired++;
+                }
+            } finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+        if (expired > 0) {
+            log.info("Discarded {} idle upload sessions", expired);
+        }
+        return expired;
+    }
+
+    @PostConstruct
+    void removeLeftoverParts() {
+        if (!Files.isDirectory(sessionsDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sessionsDir, "*.part")) {
+            for (Path leftover : stream) {
+                deleteQuietly(leftover);
+            }
+        } catch (IOException e) {
+            log.warn("Could not remove leftover upload data in {}", sessionsDir, e);
+        }
+    }
+
+    /**
+     * Takes the session's write lock, waiting at most {@code storage.uploads.close-wait} for the chunk writes holding
+     * the read lock; a client stuck mid-chunk cannot block a commit or abort indefinitely.
+     */
+    private void lockForClose(UploadSession session) {
+        boolean locked;
+        try {
+            locked = session.lock.writeLock().tryLock(closeWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for chunk writes of upload " + session.id, e);
+        }
+        if (!locked) {
+            throw new IllegalStateException("Chunks of upload " + session.id + " are still being written, try again later");
+        }
+    }
+
+    private boolean discard(UploadSession session) {
+        if (session.closed) {
+            return false;
+        }
+        session.closed = true;
+        sessions.remove(session.id);
+        openSessions.decrementAndGet();
+        closeQuietly(session.channel);
+        deleteQuietly(session.data);
+        return true;
+    }
+
+    /**
+     * Copies up to {@code limit} bytes to {@code offset}; reads one byte past the limit to detect an oversized body.
+     */
+    private static long writeAt(FileChannel channel, long offset, long limit, InputStream content) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(STREAM_BUFFER_SIZE, Math.max(1, limit))];
+        ByteBuffer view = ByteBuffer.wrap(buffer);
+        long written = 0;
+        while (written < limit) {
+            int read = content.read(buffer, 0, (int) Math.min(buffer.length, limit - written));
+            if (read == -1) {
+                return written;
+            }
+            view.clear().limit(read);
+            while (view.hasRemaining()) {
+                written += channel.write(view, offset + written);
+            }
+        }
+        return content.read() == -1 ? written : written + 1;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // The part file is deleted right after.
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete upload data {}", file, e);
+        }
+    }
+
+    private final class UploadSession {
+
+        private final String id;
+        private final String fileName;
+        private final long size;
+        private final int chunkSize;
+        private final int chunkCount;
+        private final Path data;
+        private final FileChannel channel;
+        private final BitSet received;
+        /**
+         * Chunk writes share the read lock; commit, abort and expiry take the write lock.
+         */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile long lastActivity = System.nanoTime();
+        private volatile boolean closed;
+
+        private UploadSession(String id, String fileName, long size, int chunkSize, int chunkCount, Path data, FileChannel channel) {
+            this.id = id;
+            this.fileName = fileName;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = chunkCount;
+            this.data = data;
+            this.channel = channel;
+            this.received = new BitSet(chunkCount);
+        }
+
+        private void touch() {
+            lastActivity = System.nanoTime();
+        }
+
+        private synchronized void markReceived(int index) {
+            received.set(index);
+        }
+
+        private synchronized UploadSessionDto toDto() {
+            int missingCount = chunkCount - received.cardinality();
+            List<Integer> missing = new ArrayList<>(Math.min(missingCount, UploadSessionDto.MISSING_LISTED));
+            for (int index = received.nextClearBit(0); index < chunkCount && missing.size() < UploadSessionDto.MISSING_LISTED;
+                 index = received.nextClearBit(index + 1)) {
+                missing.add(index);
+            }
+            long idleNanos = System.nanoTime() - lastActivity;
+            OffsetDateTime expiresAt = OffsetDateTime.now(ZoneOffset.UTC).plus(sessionTimeout).minusNanos(idleNanos);
+            return new UploadSessionDto(id, fileName, size, chunkSize, chunkCount, missingCount, missing, expiresAt);
+        }
+    }
+}
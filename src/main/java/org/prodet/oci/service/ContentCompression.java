@@ -0,0 +1,239 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.ContentEncoding;
+import org.prodet.oci.service.SeedRegistry.Seed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of generated files at rest ({@code storage.compression.encoding}).
+ * <p>
+ * Seeds are compressed once per content and cached, so generating a compressed file costs no more CPU than copying
+ * a plain one. zstd is used through reflection when zstd-jni is on the classpath; without it files are written with
+ * gzip and zstd files found on disk cannot be decoded (they are still served to clients that accept zstd).
+ */
+@Component
+public class ContentCompression {
+
+    private static final String ZSTD_OUTPUT_STREAM = "com.github.luben.zstd.ZstdOutputStream";
+    private static final String ZSTD_INPUT_STREAM = "com.github.luben.zstd.ZstdInputStream";
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+    private static final int ZSTD_MAGIC = 0xfd2fb528;
+    private static final long DEFLATE_MAX_RATIO = 1032;
+
+    /**
+     * Suffixes of names whose compression is the content itself (a dropped-in archive, for example), not an encoding
+     * of it at rest; generated names never carry them.
+     */
+    private static final List<String> COMPRESSED_SUFFIXES = List.of(".gz", ".tgz", ".zst", ".zstd");
+
+    private static final Logger log = LoggerFactory.getLogger(ContentCompression.class);
+
+    private final ContentEncoding encoding;
+    private final int level;
+    private final Constructor<?> zstdOutput;
+    private final Constructor<?> zstdInput;
+    private final Map<String, StoredContent> encodedSeeds = new ConcurrentHashMap<>();
+
+    public ContentCompression(StorageProperties storageProperties) {
+        this.level = storageProperties.getCompression().getLevel();
+        this.zstdOutput = zstdConstructor(ZSTD_OUTPUT_STREAM, OutputStream.class);
+        this.zstdInput = zstdConstructor(ZSTD_INPUT_STREAM, InputStream.class);
+
+        ContentEncoding configured = storageProperties.getCompression().getEncoding();
+        if (configured == ContentEncoding.ZSTD && zstdOutput == null) {
+            log.warn("storage.compression.encoding=zstd but zstd-jni is not on the classpath; using gzip");
+            configured = ContentEncoding.GZIP;
+        }
+        this.encoding = configured;
+    }
+
+    public ContentEncoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * The bytes to store for {@code seed} in the configured encoding, computed once per seed content.
+     */
+    public StoredContent encode(Seed seed) {
+        if (encoding == ContentEncoding.IDENTITY) {
+            return new StoredContent(seed.content(), seed.sha256(), seed.size(), ContentEncoding.IDENTITY);
+        }
+        return encodedSeeds.computeIfAbsent(seed.sha256() + ":" + encoding.token(), key -> {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, seed.size() / 4));
+            try (OutputStream out = encoding(compressed, encoding)) {
+                ByteBuffer content = seed.content();
+                byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to compress seed " + seed.name(), e);
+            }
+            byte[] bytes = compressed.toByteArray();
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            return new StoredContent(direct.asReadOnlyBuffer(), sha256Of(bytes), seed.size(), encoding);
+        }).duplicate();
+    }
+
+    public boolean canDecode(ContentEncoding contentEncoding) {
+        return contentEncoding != ContentEncoding.ZSTD || zstdInput != null;
+    }
+
+    /**
+     * Wraps {@code in} so it yields the decoded content.
+     */
+    public InputStream decoding(InputStream in, ContentEncoding contentEncoding) throws IOException {
+        return switch (contentEncoding) {
+            case IDENTITY -> in;
+            case GZIP -> new GZIPInputStream(in, 64 * 1024);
+            case ZSTD -> (InputStream) newZstd(zstdInput, in);
+        };
+    }
+
+    /**
+     * Detects the encoding of a file from its leading magic number, and its decoded size where the format records
+     * it cheaply. The gzip trailer holds the decoded size mod 2^32, so it is only used when the file is too small to
+     * decode to 4 GiB or more: deflate expands at most {@value #DEFLATE_MAX_RATIO}-fold. Files named as compressed
+     * formats ({@code .gz}, {@code .zst}, ...) are identity: they are served byte for byte, never decoded.
+     */
+    public Probe probe(Path file, long size) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (size < 4 || COMPRESSED_SUFFIXES.stream().anyMatch(name::endsWith)) {
+            return new Probe(ContentEncoding.IDENTITY, size);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            readFully(channel, head, 0);
+            if ((head.getShort(0) & 0xffff) == GZIP_MAGIC && size >= 18) {
+                ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, trailer, size - 4);
+                long logical = Integer.toUnsignedLong(trailer.getInt(0));
+                return new Probe(ContentEncoding.GZIP, size < (1L << 32) / DEFLATE_MAX_RATIO ? logical : null);
+            }
+            if (head.order(ByteOrder.LITTLE_ENDIAN).getInt(0) == ZSTD_MAGIC) {
+                return new Probe(ContentEncoding.ZSTD, null);
+            }
+            return new Probe(ContentEncoding.IDENTITY, size);
+        }
+    }
+
+    private OutputStream encoding(OutputStream out, ContentEncoding contentEncoding) throws IOException {
+        return switch (contentEncoding) {
+            case IDENTITY -> out;
+            case GZIP -> new GZIPOutputStream(out, 64 * 1024) {
+                {
+                    def.setLevel(level < 0 ? Deflater.DEFAULT_COMPRESSION : Math.min(level, Deflater.BEST_COMPRESSION));
+                }
+            };
+            case ZSTD -> {
+                OutputStream zstd = (OutputStream) newZstd(zstdOutput, out);
+                if (level >= 0) {
+                    try {
+                        zstd.getClass().getMethod("setLevel", int.class).invoke(zstd, level);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IOException("Could not set the zstd level", e);
+                    }
+                }
+                yield zstd;
+            }
+        };
+    }
+
+    private static Object newZstd(Constructor<?> constructor, Object stream) throws IOException {
+        if (constructor == null) {
+            throw new IOException("zstd-jni is not on the classpath");
+        }
+        try {
+            return constructor.newInstance(stream);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Could not create a zstd stream", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Could not create a zstd stream", e);
+        }
+    }
+
+    private static Constructor<?> zstdConstructor(String className, Class<?> streamType) {
+        try {
+            return Class.forName(className, true, ContentCompression.class.getClassLoader()).getConstructor(streamType);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    private static String sha256Of(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Bytes as stored on disk; {@link #content()} is shared read-only, so take a {@link #duplicate()} per use.
+     */
+    public record StoredContent(ByteBuffer content, String sha256, long logicalSize, ContentEncoding encoding) {
+
+        public int size() {
+            return content.remaining();
+        }
+
+        StoredContent duplicate() {
+            return new StoredContent(content.duplicate(), sha256, logicalSize, encoding);
+        }
+
+        /**
+         * The app_file.content_encoding value: null for plain files.
+         */
+        public String encodingToken() {
+            return encoding == ContentEncoding.IDENTITY ? null : encoding.token();
+        }
+    }
+
+    /**
+     * What {@link #probe} found; {@code logicalSize} is null when it cannot be told without decoding.
+     */
+    public record Probe(ContentEncoding encoding, Long logicalSize) {
+
+        public String encodingToken() {
+            return encoding == ContentEncoding.IDENTITY ? null : encoding.token();
+        }
+    }
+}
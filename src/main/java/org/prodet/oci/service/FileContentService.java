@@ -0,0 +1,100 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.dto.ContentEncoding;
+import org.prodet.oci.repository.AppFileRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Resolves the content of a recorded file through its app_file row.
+ */
+@Service
+public class FileContentService {
+
+    private final AppFileRepository appFileRepository;
+    private final ContentCompression contentCompression;
+
+    public FileContentService(AppFileRepository appFileRepository, ContentCompression contentCompression) {
+        this.appFileRepository = appFileRepository;
+        this.contentCompression = contentCompression;
+    }
+
+    /**
+     * @return the file behind app_file row {@code id}, or empty if there is no such row, the file is still being
+     * created, or it is no longer on disk
+     */
+    public Optional<FileContent> find(long id) {
+        return appFileRepository.findById(id)
+            .filter(row -> row.creationFinishedAt() != null)
+            .flatMap(FileContentService::onDisk);
+    }
+
+    public boolean canDecode(ContentEncoding encoding) {
+        return contentCompression.canDecode(encoding);
+    }
+
+    /**
+     * Opens the file for reading its decoded content.
+     */
+    public InputStream openDecoded(FileContent content) throws IOException {
+        InputStream in = Files.newInputStream(content.path());
+        try {
+            return contentCompression.decoding(in, content.encoding());
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static Optional<FileContent> onDisk(AppFileDto row) {
+        Path file = Path.of(row.storagePath(), row.fileName());
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file: " + file, e);
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        ContentEncoding encoding = ContentEncoding.ofToken(row.contentEncoding())
+            .orElseThrow(() -> new IllegalStateException("Unknown content encoding of app_file " + row.id() + ": " + row.contentEncoding()));
+        Long logicalSize = encoding == ContentEncoding.IDENTITY ? Long.valueOf(attributes.size())
+            : row.fileSizeBytes() == attributes.size() ? row.logicalSizeBytes() : null;
+        Instant lastModified = attributes.lastModifiedTime().toInstant();
+        // Changes whenever the file is replaced or rewritten, without reading its content.
+        String version = Long.toHexString(row.id()) + "-" + Long.toHexString(attributes.size())
+            + "-" + Long.toHexString(lastModified.toEpochMilli());
+        return Optional.of(new FileContent(file, row.fileName(), attributes.size(), lastModified, version, encoding, logicalSize));
+    }
+
+    /**
+     * A file as stored: {@code size} bytes in {@code encoding}, which decode to {@code logicalSize} bytes
+     * (null if unknown).
+     */
+    public record FileContent(Path path, String fileName, long size, Instant lastModified, String version,
+                              ContentEncoding encoding, Long logicalSize) {
+
+        /**
+         * Strong ETag of the stored bytes, or of the decoded bytes for {@link ContentEncoding#IDENTITY}; the two
+         * representations of a compressed file must not share one.
+         */
+        public String etag(ContentEncoding representation) {
+            return representation == ContentEncoding.IDENTITY
+                ? "\"" + version + "\""
+                : "\"" + version + "-" + representation.token() + "\"";
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PreDestroy;
+import org.prodet.oci.config.properties.EventsProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans file and generation events out to live subscribers (GET /api/files/events).
+ * <p>
+ * Publishing never blocks and costs nothing without subscribers: every subscriber has a bounded queue
+ * ({@code events.queue-capacity}) drained by its own virtual thread, and a subscriber whose queue is full is
+ * disconnected instead of being waited for. Its client reconnects and reloads the listings.
+ */
+@Component
+public class FileEventBus {
+
+    public static final String FILES_CREATED = "files-created";
+    public static final String GENERATION_PROGRESS = "generation-progress";
+    public static final String GENERATION_FINISHED = "generation-finished";
+
+    private static final Event HEARTBEAT = new Event(0, null, null);
+
+    private static final Logger log = LoggerFactory.getLogger(FileEventBus.class);
+
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong lastEventId = new AtomicLong();
+    private final AtomicLong droppedSubscribers = new AtomicLong();
+    private final ThreadFactory senders = Thread.ofVirtual().name("file-events-", 0).factory();
+
+    public FileEventBus(EventsProperties eventsProperties) {
+        this.queueCapacity = Math.max(1, eventsProperties.getQueueCapacity());
+        this.maxSubscribers = eventsProperties.getMaxSubscribers();
+    }
+
+    /**
+     * Queues an event named {@code name} for every subscriber; {@code data} is sent as JSON.
+     */
+    public void publish(String name, Object data) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Event event = new Event(lastEventId.incrementAndGet(), name, data);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    /**
+     * Starts delivering events to {@code sink} until it fails, falls behind or the subscription is cancelled;
+     * {@link Sink#close()} is called once in every case.
+     *
+     * @return empty when {@code events.max-subscribers} streams are open already
+     */
+    public Optional<Subscription> subscribe(Sink sink) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+        Subscriber subscriber = new Subscriber(sink);
+        subscribers.add(subscriber);
+        subscriber.start();
+        return Optional.of(subscriber);
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Number of subscribers disconnected so far because they could not keep up.
+     */
+    public long droppedSubscribers() {
+        return droppedSubscribers.get();
+    }
+
+    @Scheduled(fixedDelayString = "${events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(HEARTBEAT);
+        }
+    }
+
+    @PreDestroy
+    void closeAll() {
+        subscribers.forEach(Subscriber::cancel);
+    }
+
+    /**
+     * Where a subscriber's events go; called from the subscriber's own thread only.
+     */
+    public interface Sink {
+
+        void send(Event event) throws IOException;
+
+        void close();
+    }
+
+    public interface Subscription {
+
+        void cancel();
+    }
+
+    /**
+     * @param name null for heartbeats, which carry no data
+     */
+    public record Event(long id, String name, Object data) {
+
+        public boolean isHeartbeat() {
+            return name == null;
+        }
+    }
+
+    private final class Subscriber implements Subscription {
+
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final Sink sink;
+        private final Thread sender;
+        private volatile boolean cancelled;
+
+        private Subscriber(Sink sink) {
+            this.sink = sink;
+            this.sender = senders.newThread(this::drain);
+        }
+
+        private void start() {
+            sender.start();
+        }
+
+        private void offer(Event event) {
+            if (cancelled || queue.offer(event)) {
+                return;
+            }
+            droppedSubscribers.incrementAndGet();
+            log.info("Disconnecting an event subscriber that fell {} events behind", queueCapacity);
+            cancel();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            sender.interrupt();
+        }
+
+        private void drain() {
+            try {
+                while (!cancelled) {
+                    sink.send(queue.take());
+                }
+            } catch (InterruptedException e) {
+                // Cancelled.
+            } catch (IOException | RuntimeException e) {
+                log.debug("Event subscriber disconnected", e);
+            } finally {
+                cancelled = true;
+                if (subscribers.remove(this)) {
+                    subscriberCount.decrementAndGet();
+                }
+                try {
+                    sink.close();
+                } catch (RuntimeException e) {
+                    log.debug("Could not close event stream", e);
+                }
+            }
+        }
+    }
+}
@@ -1,48 +1,91 @@
 package org.prodet.oci.service;
 
-import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.config.properties.GenerationProperties;
 import org.prodet.oci.dto.AppFileDto;
 import org.prodet.oci.dto.AppGenerationDto;
+import org.prodet.oci.dto.FilesCreatedEventDto;
+import org.prodet.oci.dto.GenerationStatus;
+import org.prodet.oci.dto.PageDto;
+import org.prodet.oci.dto.SyncResultDto;
 import org.prodet.oci.repository.AppGenerationRepository;
+import org.prodet.oci.repository.AppGenerationTaskRepository;
+import org.prodet.oci.repository.AppGenerationTaskRepository.GenerationTask;
 import org.prodet.oci.repository.AppFileRepository;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.prodet.oci.repository.KeysetCursor;
+import org.prodet.oci.service.ContentCompression.StoredContent;
+import org.prodet.oci.service.PipelineMetrics.Phase;
+import org.prodet.oci.service.SeedRegistry.SeedType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.FileTime;
-import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 @Service
 public class FileGenerationService {
 
     private static final int MAX_COUNT = 1_000;
-    private static final String XML_PATTERN = "classpath*:media/seed-files/xml/*.xml";
-    private static final String JSON_PATTERN = "classpath*:media/seed-files/json/*.json";
-    private static final DateTimeFormatter FILE_TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+    static final DateTimeFormatter FILE_TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS");
+
+    private static final Logger log = LoggerFactory.getLogger(FileGenerationService.class);
 
     private final AppFileRepository appFileRepository;
     private final AppGenerationRepository appGenerationRepository;
-    private final Path generatedDir;
-
-    public FileGenerationService(AppFileRepository appFileRepository, AppGenerationRepository appGenerationRepository, StorageProperties storageProperties) {
+    private final AppGenerationTaskRepository appGenerationTaskRepository;
+    private final GenerationProperties generationProperties;
+    private final SeedRegistry seedRegistry;
+    private final GeneratedFilesSync generatedFilesSync;
+    private final FilesystemIndexer filesystemIndexer;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore dbPermits;
+    private final GeneratedLayout generatedLayout;
+    private final BlobStore blobStore;
+    private final ContentCompression contentCompression;
+    private final ListingCache listingCache;
+    private final FileEventBus fileEventBus;
+    private final PipelineMetrics pipelineMetrics;
+
+    public FileGenerationService(AppFileRepository appFileRepository, AppGenerationRepository appGenerationRepository,
+                                 AppGenerationTaskRepository appGenerationTaskRepository, GeneratedLayout generatedLayout, GenerationProperties generationProperties,
+                                 SeedRegistry seedRegistry, GeneratedFilesSync generatedFilesSync,
+                                 FilesystemIndexer filesystemIndexer, BlobStore blobStore,
+                                 ContentCompression contentCompression, ListingCache listingCache,
+                                 FileEventBus fileEventBus, PipelineMetrics pipelineMetrics,
+                                 PlatformTransactionManager transactionManager) {
         this.appFileRepository = appFileRepository;
         this.appGenerationRepository = appGenerationRepository;
-        this.generatedDir = Paths.get(storageProperties.getLocation()).resolve("generated");
+        this.appGenerationTaskRepository = appGenerationTaskRepository;
+        this.generationProperties = generationProperties;
+        this.seedRegistry = seedRegistry;
+        this.generatedFilesSync = generatedFilesSync;
+        this.filesystemIndexer = filesystemIndexer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dbPermits = new Semaphore(Math.max(1, generationProperties.getDbConcurrency()));
+        this.generatedLayout = generatedLayout;
+        this.blobStore = blobStore;
+        this.contentCompression = contentCompression;
+        this.listingCache = listingCache;
+        this.fileEventBus = fileEventBus;
+        this.pipelineMetrics = pipelineMetrics;
     }
 
     public List<AppFileDto> generateFiles(int count) {
@@ -50,185 +93,495 @@ public class FileGenerationService {
             throw new IllegalArgumentException("count must be between 1 and " + MAX_COUNT);
         }
 
-        Resource[] xmlSeeds = loadResources(XML_PATTERN);
-        Resource[] jsonSeeds = loadResources(JSON_PATTERN);
-        if (xmlSeeds.length == 0 || jsonSeeds.length == 0) {
-            throw new IllegalStateException("Missing seed files under src/main/resources/media/seed-files (xml/json)");
-        }
+        seedRegistry.requireSeeds();
 
-        Filesystem.mkdirs(generatedDir);
+        Filesystem.mkdirs(generatedLayout.root());
 
         int xmlCount = count / 2;
         int jsonCount = count - xmlCount;
-        List<FileType> types = new ArrayList<>(count);
-        types.addAll(Collections.nCopies(xmlCount, FileType.XML));
-        types.addAll(Collections.nCopies(jsonCount, FileType.JSON));
+        List<SeedType> types = new ArrayList<>(count);
+        types.addAll(Collections.nCopies(xmlCount, SeedType.XML));
+        types.addAll(Collections.nCopies(jsonCount, SeedType.JSON));
         Collections.shuffle(types, ThreadLocalRandom.current());
 
+        long startNanos = System.nanoTime();
         OffsetDateTime generationStartedAt = OffsetDateTime.now(ZoneOffset.UTC);
-        long generationId = appGenerationRepository.insertStarted(count, generationStartedAt);
+        long generationId = withDbPermit(() -> pipelineMetrics.time(Phase.DB_INSERT, () -> appGenerationRepository.insertStarted(count, generationStartedAt)));
 
-        List<AppFileDto> results = new ArrayList<>(count);
+        List<String> fileNames = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
-            FileType type = types.get(i);
-            Resource seed = pickSeed(type == FileType.XML ? xmlSeeds : jsonSeeds);
+            fileNames.add(fileName(types.get(i), i));
+        }
+
+        GenerationProperties.PersistenceMode mode = generationProperties.getPersistence();
+        List<AppFileDto> results;
+        filesystemIndexer.claim(fileNames);
+        pipelineMetrics.generationStarted();
+        try {
+            results = mode == GenerationProperties.PersistenceMode.PER_ROW
+                ? generatePerRow(generationId, generationStartedAt, types, fileNames)
+                : generateBatched(generationId, generationStartedAt, types, fileNames);
+        } catch (RuntimeException e) {
+            discardFailedGeneration(generationId, fileNames);
+            markGenerationFailed(generationId, e);
+            fileEventBus.publish(FileEventBus.GENERATION_FINISHED, GenerationProgress.toDto(generationId, GenerationStatus.FAILED,
+                count, 0, 0, generationStartedAt, OffsetDateTime.now(ZoneOffset.UTC), null, String.valueOf(e.getMessage())));
+            throw e;
+        } finally {
+            pipelineMetrics.generationEnded();
+            filesystemIndexer.release(fileNames);
+        }
 
-            String extension = type == FileType.XML ? "xml" : "json";
-            String fileName = "gen-" + OffsetDateTime.now(ZoneOffset.UTC).format(FILE_TS) + "-" + (i + 1) + "-" + randomSuffix() + "." + extension;
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long createdBytes = results.stream().mapToLong(AppFileDto::fileSizeBytes).sum();
+        pipelineMetrics.created(results.size(), createdBytes);
+        fileEventBus.publish(FileEventBus.FILES_CREATED, new FilesCreatedEventDto(generationId, results.size(), results));
+        fileEventBus.publish(FileEventBus.GENERATION_FINISHED, GenerationProgress.toDto(generationId, GenerationStatus.COMPLETED,
+            count, results.size(), createdBytes, generationStartedAt, OffsetDateTime.now(ZoneOffset.UTC), elapsedNanos, null));
 
-            String storagePath = generatedDir.toAbsolutePath().normalize().toString();
+        double seconds = Math.max(elapsedNanos, 1L) / 1_000_000_000.0;
+        log.info("Generation {} created {} files in {} ms ({} files/s, persistence={}, parallelism={})",
+            generationId, count, Math.round(seconds * 1000), Math.round(count / seconds), mode, generationProperties.getParallelism());
+
+        return results;
+    }
+
+    private List<AppFileDto> generatePerRow(long generationId, OffsetDateTime generationStartedAt, List<SeedType> types, List<String> fileNames) {
+        int count = types.size();
+        List<AppFileDto> results = materialize(count, i -> {
+            SeedType type = types.get(i);
+            String fileName = fileNames.get(i);
+            String storagePath = storagePathOf(fileName);
             OffsetDateTime startedAt = (i == 0) ? generationStartedAt : OffsetDateTime.now(ZoneOffset.UTC);
 
-            long id = appFileRepository.insertStarted(storagePath, fileName, startedAt, generationId);
+            long id = withDbPermit(() -> pipelineMetrics.time(Phase.DB_INSERT,
+                () -> appFileRepository.insertStarted(storagePath, fileName, startedAt, generationId)));
+            StoredContent written = writeSeed(type, fileName);
 
-            Path target = generatedDir.resolve(fileName).normalize().toAbsolutePath();
-            try (InputStream in = seed.getInputStream()) {
-                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to create file: " + target, e);
-            }
+            OffsetDateTime finishedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            withDbPermit(() -> {
+                pipelineMetrics.time(Phase.DB_UPDATE,
+                    () -> appFileRepository.updateFinished(id, finishedAt, written.size(), written.encodingToken(), written.logicalSize()));
+                return null;
+            });
+
+            return new AppFileDto(id, generationId, storagePath, fileName, startedAt, finishedAt, written.size(),
+                written.encodingToken(), written.logicalSize());
+        });
+
+        OffsetDateTime generationFinishedAt = latestFinish(results.stream().map(AppFileDto::creationFinishedAt).toList());
+        long createdBytes = results.stream().mapToLong(AppFileDto::fileSizeBytes).sum();
+        withDbPermit(() -> {
+            pipelineMetrics.time(Phase.DB_UPDATE, () -> appGenerationRepository.updateFinished(generationId, generationFinishedAt, count, createdBytes));
+            return null;
+        });
+        return results;
+    }
 
-            long size;
-            try {
-                size = Files.size(target);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to read file size for: " + target, e);
-            }
+    /**
+     * Writes every file first and records its own start/finish timestamps, then persists all rows
+     * (plus the generation's finish) in one transaction using JDBC batches of {@code generation.batch-size}.
+     */
+    private List<AppFileDto> generateBatched(long generationId, OffsetDateTime generationStartedAt, List<SeedType> types, List<String> fileNames) {
+        int count = types.size();
+        List<AppFileRepository.CompletedFile> rows = materialize(count, i -> {
+            SeedType type = types.get(i);
+            String fileName = fileNames.get(i);
+            String storagePath = storagePathOf(fileName);
+            OffsetDateTime startedAt = (i == 0) ? generationStartedAt : OffsetDateTime.now(ZoneOffset.UTC);
+
+            StoredContent written = writeSeed(type, fileName);
 
             OffsetDateTime finishedAt = OffsetDateTime.now(ZoneOffset.UTC);
-            appFileRepository.updateFinished(id, finishedAt, size);
+            return new AppFileRepository.CompletedFile(storagePath, fileName, generationId, startedAt, finishedAt,
+                written.size(), written.encodingToken(), written.logicalSize());
+        });
+
+        OffsetDateTime generationFinishedAt = latestFinish(rows.stream().map(AppFileRepository.CompletedFile::creationFinishedAt).toList());
+        long createdBytes = rows.stream().mapToLong(AppFileRepository.CompletedFile::fileSizeBytes).sum();
+        long[] ids = withDbPermit(() -> transactionTemplate.execute(status -> {
+            long[] inserted = pipelineMetrics.time(Phase.DB_INSERT, () -> appFileRepository.insertCompletedBatch(rows, generationProperties.getBatchSize()));
+            pipelineMetrics.time(Phase.DB_UPDATE, () -> appGenerationRepository.updateFinished(generationId, generationFinishedAt, count, createdBytes));
+            return inserted;
+        }));
 
-            if (i == count - 1) {
-                appGenerationRepository.updateFinished(generationId, finishedAt, count);
+        List<AppFileDto> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            AppFileRepository.CompletedFile row = rows.get(i);
+            results.add(new AppFileDto(ids[i], generationId, row.storagePath(), row.fileName(),
+                row.creationStartedAt(), row.creationFinishedAt(), row.fileSizeBytes(), row.contentEncoding(), row.logicalSizeBytes()));
+        }
+        return results;
+    }
+
+    /**
+     * Runs a (possibly very large) generation in chunks of {@code generation.batch-size} files.
+     * <p>
+     * Each chunk is written in parallel and committed in its own transaction together with the
+     * generation's running totals, so {@code app_generation} reflects progress while the job runs.
+     * A failing chunk is removed again; chunks committed before it are kept.
+     */
+    public void runGenerationJob(GenerationProgress progress) {
+        long generationId = progress.generationId();
+        int count = progress.requestedCount();
+
+        seedRegistry.requireSeeds();
+        Filesystem.mkdirs(generatedLayout.root());
+
+        long startNanos = System.nanoTime();
+        OffsetDateTime generationStartedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        withDbPermit(() -> {
+            pipelineMetrics.time(Phase.DB_UPDATE, () -> appGenerationRepository.markRunning(generationId, generationStartedAt));
+            return null;
+        });
+        progress.markRunning(generationStartedAt);
+
+        SeedTypeSampler sampler = new SeedTypeSampler(count / 2, count - count / 2);
+        int chunkSize = Math.max(1, generationProperties.getBatchSize());
+        int created = 0;
+        long createdBytes = 0;
+
+        while (created < count) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Generation " + generationId + " was interrupted after " + created + " files");
             }
 
-            results.add(new AppFileDto(id, generationId, storagePath, fileName, startedAt, finishedAt, size));
+            int offset = created;
+            int chunk = Math.min(chunkSize, count - created);
+            List<SeedType> types = sampler.next(chunk);
+            List<String> fileNames = new ArrayList<>(chunk);
+            for (int i = 0; i < chunk; i++) {
+                fileNames.add(fileName(types.get(i), offset + i));
+            }
+
+            filesystemIndexer.claim(fileNames);
+            try {
+                List<AppFileRepository.CompletedFile> rows = writeFiles(generationId, types, fileNames);
+
+                long chunkBytes = rows.stream().mapToLong(AppFileRepository.CompletedFile::fileSizeBytes).sum();
+                int createdAfterChunk = created + chunk;
+                long bytesAfterChunk = createdBytes + chunkBytes;
+                withDbPermit(() -> {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        pipelineMetrics.time(Phase.DB_INSERT, () -> appFileRepository.insertCompletedBatch(rows, chunkSize));
+                        pipelineMetrics.time(Phase.DB_UPDATE, () -> appGenerationRepository.updateProgress(generationId, createdAfterChunk, bytesAfterChunk));
+                    });
+                    return null;
+                });
+
+                created = createdAfterChunk;
+                createdBytes = bytesAfterChunk;
+                progress.add(chunk, chunkBytes);
+                pipelineMetrics.created(chunk, chunkBytes);
+                fileEventBus.publish(FileEventBus.FILES_CREATED, new FilesCreatedEventDto(generationId, chunk, List.of()));
+                fileEventBus.publish(FileEventBus.GENERATION_PROGRESS, progress.snapshot());
+            } catch (RuntimeException e) {
+                deleteFilesQuietly(fileNames);
+                throw e;
+            } finally {
+                filesystemIndexer.release(fileNames);
+            }
         }
 
-        return results;
+        OffsetDateTime generationFinishedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        int createdCount = created;
+        long totalBytes = createdBytes;
+        withDbPermit(() -> {
+            pipelineMetrics.time(Phase.DB_UPDATE, () -> appGenerationRepository.updateFinished(generationId, generationFinishedAt, createdCount, totalBytes));
+            return null;
+        });
+        progress.markCompleted();
+        fileEventBus.publish(FileEventBus.GENERATION_FINISHED, progress.finishedSnapshot(generationFinishedAt));
+
+        double seconds = Math.max(System.nanoTime() - startNanos, 1L) / 1_000_000_000.0;
+        log.info("Generation job {} created {} files ({} bytes) in {} ms ({} files/s)",
+            generationId, count, totalBytes, Math.round(seconds * 1000), Math.round(count / seconds));
     }
 
-    public List<AppGenerationDto> listLatestGenerations(int limit) {
-        if (limit < 1 || limit > 1_000) {
-            throw new IllegalArgumentException("limit must be between 1 and 1000");
+    /**
+     * Generates the files of a claimed task of a distributed generation, then commits their rows together with the
+     * task's completion and the generation's totals. The transaction that completes the generation's last task also
+     * completes the generation.
+     *
+     * @return the generation, if this task completed it
+     * @throws IllegalStateException when {@code workerId} lost the claim meanwhile; nothing is recorded then
+     */
+    public Optional<AppGenerationDto> runGenerationTask(GenerationTask task, String workerId) {
+        long generationId = task.generationId();
+        int count = task.fileCount();
+
+        seedRegistry.requireSeeds();
+        Filesystem.mkdirs(generatedLayout.root());
+
+        OffsetDateTime taskStartedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        withDbPermit(() -> pipelineMetrics.time(Phase.DB_UPDATE, () -> appGenerationRepository.markRunningIfQueued(generationId, taskStartedAt)));
+
+        List<SeedType> types = new SeedTypeSampler(task.xmlCount(), count - task.xmlCount()).next(count);
+        List<String> fileNames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            fileNames.add(fileName(types.get(i), task.fileOffset() + i));
         }
-        return appGenerationRepository.findLatest(limit);
-    }
 
-    public List<AppFileDto> listLatest(int limit) {
-        if (limit < 1 || limit > 5_000) {
-            throw new IllegalArgumentException("limit must be between 1 and 5000");
+        filesystemIndexer.claim(fileNames);
+        try {
+            List<AppFileRepository.CompletedFile> rows = writeFiles(generationId, types, fileNames);
+            long bytes = rows.stream().mapToLong(AppFileRepository.CompletedFile::fileSizeBytes).sum();
+            OffsetDateTime finishedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            boolean generationFinished = withDbPermit(() -> transactionTemplate.execute(status -> {
+                pipelineMetrics.time(Phase.DB_INSERT, () -> appFileRepository.insertCompletedBatch(rows, Math.max(1, generationProperties.getBatchSize())));
+                return pipelineMetrics.time(Phase.DB_UPDATE, () -> {
+                    if (!appGenerationTaskRepository.complete(task, workerId, finishedAt, bytes)) {
+                        throw new IllegalStateException("Task " + task.taskIndex() + " of generation " + generationId + " was claimed by another worker");
+                    }
+                    appGenerationRepository.addProgress(generationId, count, bytes);
+                    return appGenerationRepository.finishIfTasksDone(generationId, finishedAt);
+                });
+            }));
+
+            pipelineMetrics.created(count, bytes);
+            fileEventBus.publish(FileEventBus.FILES_CREATED, new FilesCreatedEventDto(generationId, count, List.of()));
+            return generationFinished
+                ? withDbPermit(() -> appGenerationRepository.findById(generationId))
+                : Optional.empty();
+        } catch (RuntimeException e) {
+            deleteFilesQuietly(fileNames);
+            throw e;
+        } finally {
+            filesystemIndexer.release(fileNames);
         }
-        return appFileRepository.findLatest(limit);
     }
 
-    public List<AppFileDto> syncFilesystemAndListLatest(int limit) {
-        if (limit < 1 || limit > 5_000) {
-            throw new IllegalArgumentException("limit must be between 1 and 5000");
-        }
+    /**
+     * Writes the files of a job chunk or task (in parallel, see {@link #materialize}) and returns their rows.
+     */
+    private List<AppFileRepository.CompletedFile> writeFiles(long generationId, List<SeedType> types, List<String> fileNames) {
+        return materialize(fileNames.size(), i -> {
+            OffsetDateTime startedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            StoredContent written = writeSeed(types.get(i), fileNames.get(i));
+            OffsetDateTime finishedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            return new AppFileRepository.CompletedFile(storagePathOf(fileNames.get(i)), fileNames.get(i), generationId, startedAt, finishedAt,
+                written.size(), written.encodingToken(), written.logicalSize());
+        });
+    }
 
-        Path dir = generatedDir.toAbsolutePath().normalize();
-        if (!Files.exists(dir)) {
-            return appFileRepository.findLatest(limit);
+    /**
+     * Runs {@code task} for every index and returns the results in index order.
+     * With {@code generation.parallelism > 1} the tasks run on virtual threads, at most that many at once;
+     * the first failure stops submitting new work and is rethrown once the in-flight tasks have finished.
+     */
+    private <T> List<T> materialize(int count, IntFunction<T> task) {
+        int parallelism = generationProperties.getParallelism();
+        if (parallelism <= 1) {
+            List<T> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(task.apply(i));
+            }
+            return results;
         }
 
-        Set<String> knownNames = appFileRepository.findFileNamesByStoragePath(dir.toString());
-
-        try (Stream<Path> stream = Files.list(dir)) {
-            stream
-                .filter(Files::isRegularFile)
-                .forEach(path -> {
-                    String fileName = path.getFileName().toString();
-                    if (knownNames.contains(fileName)) {
-                        return;
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<T>> futures = new ArrayList<>(count);
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("file-gen-", 0).factory())) {
+            for (int i = 0; i < count && failure.get() == null; i++) {
+                permits.acquireUninterruptibly();
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    try {
+                        return task.apply(index);
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        permits.release();
                     }
+                }));
+            }
+        }
 
-                    OffsetDateTime ts = fileTimestampUtc(path);
-                    long size = fileSize(path);
+        Throwable error = failure.get();
+        if (error != null) {
+            throw rethrowable(error);
+        }
+        List<T> results = new ArrayList<>(count);
+        for (Future<T> future : futures) {
+            if (future.state() == Future.State.FAILED) {
+                throw rethrowable(future.exceptionNow());
+            }
+            results.add(future.resultNow());
+        }
+        return results;
+    }
 
-                    long id = appFileRepository.insertStarted(dir.toString(), fileName, ts);
-                    appFileRepository.updateFinished(id, ts, size);
-                });
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to sync filesystem from: " + dir, e);
+    /**
+     * A task's failure as thrown by the task itself: errors (e.g. OutOfMemoryError) and runtime exceptions unchanged,
+     * only checked exceptions wrapped.
+     */
+    private static RuntimeException rethrowable(Throwable failure) {
+        if (failure instanceof Error error) {
+            throw error;
         }
+        return failure instanceof RuntimeException runtime ? runtime : new RuntimeException(failure);
+    }
 
-        return appFileRepository.findLatest(limit);
+    /**
+     * Limits concurrent DB work of all generations to {@code generation.db-concurrency},
+     * so parallel file tasks cannot drain the connection pool.
+     */
+    private <T> T withDbPermit(Supplier<T> action) {
+        pipelineMetrics.time(Phase.DB_WAIT, () -> dbPermits.acquireUninterruptibly());
+        try {
+            return action.get();
+        } finally {
+            dbPermits.release();
+        }
     }
 
-    public org.prodet.oci.dto.CleanResultDto cleanAllGenerated() {
-        Path dir = generatedDir.toAbsolutePath().normalize();
+    private void discardFailedGeneration(long generationId, List<String> fileNames) {
+        deleteFilesQuietly(fileNames);
+        try {
+            withDbPermit(() -> appFileRepository.deleteByGenerationId(generationId));
+        } catch (RuntimeException e) {
+            log.warn("Could not remove app_file rows of failed generation {}", generationId, e);
+        }
+    }
 
-        int deletedFiles = 0;
-        if (Files.exists(dir)) {
-            try (Stream<Path> stream = Files.walk(dir)) {
-                List<Path> toDelete = stream
-                    .sorted((a, b) -> b.getNameCount() - a.getNameCount()) // children first
-                    .filter(p -> !p.equals(dir))
-                    .toList();
+    private void markGenerationFailed(long generationId, RuntimeException cause) {
+        try {
+            withDbPermit(() -> {
+                appGenerationRepository.markFailed(generationId, OffsetDateTime.now(ZoneOffset.UTC), String.valueOf(cause.getMessage()));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not mark generation {} as failed", generationId, e);
+        }
+    }
 
-                for (Path p : toDelete) {
-                    try {
-                        boolean isRegularFile = Files.isRegularFile(p);
-                        Files.deleteIfExists(p);
-                        if (isRegularFile) {
-                            deletedFiles++;
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException("Failed to delete: " + p, e);
-                    }
-                }
+    private void deleteFilesQuietly(List<String> fileNames) {
+        for (String fileName : fileNames) {
+            try {
+                Files.deleteIfExists(generatedLayout.pathFor(fileName));
             } catch (IOException e) {
-                throw new RuntimeException("Failed to list/delete generated files under: " + dir, e);
+                log.warn("Could not remove partially generated file {}", fileName, e);
             }
         }
+    }
 
-        Filesystem.mkdirs(dir);
-        int deletedDbRows = appFileRepository.deleteAll();
-        appGenerationRepository.deleteAll();
+    private static OffsetDateTime latestFinish(List<OffsetDateTime> finishedAts) {
+        return finishedAts.stream().max(OffsetDateTime::compareTo).orElseThrow();
+    }
+
+    /**
+     * Name of the {@code index}-th file of a generation; unique through the timestamp and a random suffix.
+     */
+    static String fileName(SeedType type, int index) {
+        return "gen-" + OffsetDateTime.now(ZoneOffset.UTC).format(FILE_TS) + "-" + (index + 1) + "-" + randomSuffix() + "." + type.extension();
+    }
 
-        return new org.prodet.oci.dto.CleanResultDto(deletedDbRows, deletedFiles);
+    private String storagePathOf(String fileName) {
+        return generatedLayout.dirFor(fileName).toString();
     }
 
-    private static OffsetDateTime fileTimestampUtc(Path path) {
+    /**
+     * Writes a random seed to the file in the {@code storage.compression.encoding}, or links it to the blob holding
+     * those bytes with {@code storage.dedup.enabled}.
+     */
+    private StoredContent writeSeed(SeedType type, String fileName) {
+        return pipelineMetrics.time(Phase.WRITE, () -> writeSeedUntimed(type, fileName));
+    }
+
+    private StoredContent writeSeedUntimed(SeedType type, String fileName) {
+        Path target = generatedLayout.pathFor(fileName);
         try {
-            FileTime ft = Files.getLastModifiedTime(path);
-            Instant instant = ft.toInstant();
-            return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+            if (generatedLayout.levels() > 0) {
+                Files.createDirectories(target.getParent());
+            }
+            StoredContent content = contentCompression.encode(seedRegistry.pick(type));
+            if (blobStore.isEnabled()) {
+                blobStore.link(content.sha256(), content.content(), target);
+            } else {
+                seedRegistry.write(content.content(), target);
+            }
+            return content;
         } catch (IOException e) {
-            return OffsetDateTime.now(ZoneOffset.UTC);
+            throw new RuntimeException("Failed to create file: " + target, e);
         }
     }
 
-    private static long fileSize(Path path) {
-        try {
-            return Files.size(path);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read file size for: " + path, e);
+    public List<AppGenerationDto> listLatestGenerations(int limit) {
+        return listGenerationsPage(limit, null).items();
+    }
+
+    public PageDto<AppGenerationDto> listGenerationsPage(int limit, String cursor) {
+        if (limit < 1 || limit > 1_000) {
+            throw new IllegalArgumentException("limit must be between 1 and 1000");
         }
+        KeysetCursor after = cursor == null ? null : KeysetCursor.decode(cursor);
+        ListingCache.Listing<AppGenerationDto> listing = after == null
+            ? listingCache.latestGenerations(limit)
+            : new ListingCache.Listing<>(appGenerationRepository.findPage(limit, after), null);
+        List<AppGenerationDto> rows = listing.rows();
+        String nextCursor = rows.size() < limit ? null : KeysetCursor.ofId(rows.get(rows.size() - 1).id()).encode();
+        return new PageDto<>(rows, nextCursor, listing.version());
     }
 
-    private static Resource[] loadResources(String pattern) {
-        try {
-            return new PathMatchingResourcePatternResolver().getResources(pattern);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load seed resources: " + pattern, e);
+    /**
+     * Version of the first generations page of {@code limit} rows, if it is known without a query.
+     */
+    public Optional<String> latestGenerationsVersion(int limit) {
+        return listingCache.cachedGenerationsVersion(limit);
+    }
+
+    public List<AppFileDto> listLatest(int limit) {
+        return listPage(limit, null).items();
+    }
+
+    public PageDto<AppFileDto> listPage(int limit, String cursor) {
+        if (limit < 1 || limit > 5_000) {
+            throw new IllegalArgumentException("limit must be between 1 and 5000");
         }
+        KeysetCursor after = cursor == null ? null : KeysetCursor.decode(cursor);
+        if (after != null && after.timestamp() == null) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        ListingCache.Listing<AppFileDto> listing = after == null
+            ? listingCache.latestFiles(limit)
+            : new ListingCache.Listing<>(appFileRepository.findPage(limit, after), null);
+        List<AppFileDto> rows = listing.rows();
+        String nextCursor = rows.size() < limit ? null : AppFileRepository.cursorOf(rows.get(rows.size() - 1)).encode();
+        return new PageDto<>(rows, nextCursor, listing.version());
     }
 
-    private static Resource pickSeed(Resource[] seeds) {
-        int index = ThreadLocalRandom.current().nextInt(seeds.length);
-        return seeds[index];
+    /**
+     * Version of the first files page of {@code limit} rows, if it is known without a query.
+     */
+    public Optional<String> latestVersion(int limit) {
+        return listingCache.cachedFilesVersion(limit);
     }
 
-    private static String randomSuffix() {
-        long value = ThreadLocalRandom.current().nextLong();
-        return Long.toUnsignedString(value, 16);
+    public List<AppFileDto> syncFilesystemAndListLatest(int limit) {
+        if (limit < 1 || limit > 5_000) {
+            throw new IllegalArgumentException("limit must be between 1 and 5000");
+        }
+
+        syncFilesystem();
+        return listingCache.latestFiles(limit).rows();
     }
 
-    private enum FileType {
-        XML,
-        JSON
+    /**
+     * Records files that appeared in the generated directory (and, with the indexer, drops rows of removed ones).
+     * With {@code storage.indexer.enabled} only the changes the indexer has seen since the last call are applied;
+     * otherwise the whole directory is reconciled.
+     */
+    public SyncResultDto syncFilesystem() {
+        SyncResultDto result = filesystemIndexer.isRunning() ? filesystemIndexer.flush() : generatedFilesSync.fullScan();
+        log.debug("Sync recorded {} new files, skipped {}, {} rows without a file", result.inserted(), result.skipped(), result.missing());
+        return result;
+    }
+
+    static String randomSuffix() {
+        long value = ThreadLocalRandom.current().nextLong();
+        return Long.toUnsignedString(value, 16);
     }
 
     private static final class Filesystem {
@@ -10,20 +10,29 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Stream;
 
 @Service
 public class FileSystemStorageService implements StorageService {
 
+    private static final int STREAM_BUFFER_SIZE = 256 * 1024;
+
     private final Path rootLocation;
+    private final GeneratedLayout generatedLayout;
 
     @Autowired
-    public FileSystemStorageService(StorageProperties properties) {
+    public FileSystemStorageService(StorageProperties properties, GeneratedLayout generatedLayout) {
         this.rootLocation = Paths.get(properties.getLocation());
+        this.generatedLayout = generatedLayout;
         // Ensure the upload directory exists on startup
         try {
             Files.createDirectories(this.rootLocation);
@@ -38,17 +47,7 @@ public class FileSystemStorageService implements StorageService {
             if (file.isEmpty()) {
                 throw new RuntimeException("Failed to store empty file.");
             }
-            // Ensure directory exists in case it's been removed
-            Files.createDirectories(this.rootLocation);
-
-            Path destinationFile = this.rootLocation.resolve(
-                    Paths.get(file.getOriginalFilename()))
-                    .normalize().toAbsolutePath();
-            if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
-                // This is a security check
-                throw new RuntimeException(
-                        "Cannot store file outside current directory.");
-            }
+            Path destinationFile = destinationFor(file.getOriginalFilename());
             try (InputStream inputStream = file.getInputStream()) {
                 Files.copy(inputStream, destinationFile,
                     StandardCopyOption.REPLACE_EXISTING);
@@ -59,11 +58,124 @@ public class FileSystemStorageService implements StorageService {
         }
     }
 
+    /**
+     * Streams {@code content} into {@code <name>.<random>.part} next to the destination through a {@link FileChannel},
+     * reusing one {@value #STREAM_BUFFER_SIZE}-byte buffer, and renames it into place once the stream ends.
+     * Heap use does not depend on the file size and every byte is written once; a failed upload leaves no file behind.
+     */
+    @Override
+    public long store(String filename, InputStream content) {
+        Path destinationFile;
+        Path partFile = null;
+        try {
+            destinationFile = destinationFor(filename);
+            partFile = destinationFile.resolveSibling(
+                destinationFile.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 16) + ".part");
+
+            long written = 0;
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            ByteBuffer view = ByteBuffer.wrap(buffer);
+            try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    view.clear().limit(read);
+                    while (view.hasRemaining()) {
+                        written += channel.write(view);
+                    }
+                }
+            }
+
+            try {
+                Files.move(partFile, destinationFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partFile, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return written;
+        }
+        catch (IOException e) {
+            deletePartQuietly(partFile);
+            throw new RuntimeException("Failed to store file.", e);
+        }
+        catch (RuntimeException e) {
+            deletePartQuietly(partFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Renames {@code completedFile} into place, so the file appears under its name only once it is complete.
+     * The source should live on the same file system as the storage root.
+     */
+    @Override
+    public long store(String filename, Path completedFile) {
+        try {
+            Path destinationFile = destinationFor(filename);
+            long size = Files.size(completedFile);
+            try {
+                Files.move(completedFile, destinationFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(completedFile, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return size;
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to store file.", e);
+        }
+    }
+
+    private Path destinationFor(String filename) throws IOException {
+        if (filename == null || filename.isBlank()) {
+            throw new RuntimeException("Failed to store file without a name.");
+        }
+        // Ensure directory exists in case it's been removed
+        Files.createDirectories(this.rootLocation);
+
+        Path destinationFile = this.rootLocation.resolve(
+                Paths.get(filename))
+                .normalize().toAbsolutePath();
+        if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
+            // This is a security check
+            throw new RuntimeException(
+                    "Cannot store file outside current directory.");
+        }
+        String name = destinationFile.getFileName().toString();
+        if (isReserved(name)) {
+            // The generated tree, the app's own directories and in-flight .part files must not be overwritten
+            throw new RuntimeException(
+                    "Cannot store file under the reserved name " + name + ".");
+        }
+        return destinationFile;
+    }
+
+    private boolean isReserved(String name) {
+        return name.equals(generatedLayout.root().getFileName().toString())
+            || name.equals(GeneratedFilesCleaner.TRASH_DIR)
+            || name.equals(ChunkedUploadService.SESSIONS_DIR)
+            || name.equals(BlobStore.BLOBS_DIR)
+            || name.endsWith(".part");
+    }
+
+    private static void deletePartQuietly(Path partFile) {
+        if (partFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(partFile);
+        }
+        catch (IOException ignored) {
+            // Leftover .part files are never listed as uploads.
+        }
+    }
+
     @Override
     public Stream<Path> loadAll() {
         try {
             return Files.walk(this.rootLocation, 1)
                 .filter(path -> !path.equals(this.rootLocation))
+                .filter(path -> !path.getFileName().toString().equals(GeneratedFilesCleaner.TRASH_DIR))
+                .filter(path -> !path.getFileName().toString().equals(ChunkedUploadService.SESSIONS_DIR))
+                .filter(path -> !path.getFileName().toString().equals(BlobStore.BLOBS_DIR))
+                .filter(path -> !path.getFileName().toString().endsWith(".part"))
                 .map(this.rootLocation::relativize);
         }
         catch (IOException e) {
@@ -72,9 +184,19 @@ public class FileSystemStorageService implements StorageService {
 
     }
 
+    /**
+     * Resolves an uploaded file, or a generated file by its bare name in the sharded generated layout.
+     */
     @Override
     public Path load(String filename) {
-        return rootLocation.resolve(filename);
+        Path file = rootLocation.resolve(filename);
+        if (!Files.exists(file) && Paths.get(filename).getNameCount() == 1) {
+            Path generated = generatedLayout.pathFor(filename);
+            if (Files.exists(generated)) {
+                return generated;
+            }
+        }
+        return file;
     }
 
     @Override
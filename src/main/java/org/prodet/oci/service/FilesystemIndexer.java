@@ -0,0 +1,271 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.SyncResultDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional background indexer ({@code storage.indexer.enabled=true}) that watches the generated directory tree
+ * and keeps app_file up to date incrementally, so sync only has to apply the changes seen since the last call.
+ * <p>
+ * Every {@link GeneratedLayout} directory is watched, plus the storage root so a clean that swaps out
+ * {@code generated} is noticed. Changes are applied once a file has been quiet for {@code storage.indexer.settle-delay},
+ * so files still being written are not recorded half-way. Files the application is writing itself are claimed
+ * via {@link #claim} and skipped. If the watch queue overflows or the tree is replaced, the next flush falls back
+ * to a full scan.
+ */
+@Component
+public class FilesystemIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(FilesystemIndexer.class);
+
+    private final GeneratedFilesSync generatedFilesSync;
+    private final GeneratedLayout layout;
+    private final boolean enabled;
+    private final long settleNanos;
+
+    private final Map<Path, Long> pending = new ConcurrentHashMap<>();
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, Path> watched = new HashMap<>();
+    private final Object flushLock = new Object();
+
+    private volatile boolean rescanRequested = true;
+    private volatile boolean running;
+    private boolean reregisterRequested;
+    private WatchService watchService;
+    private Thread thread;
+
+    public FilesystemIndexer(GeneratedFilesSync generatedFilesSync, GeneratedLayout layout, StorageProperties storageProperties) {
+        this.generatedFilesSync = generatedFilesSync;
+        this.layout = layout;
+        this.enabled = storageProperties.getIndexer().isEnabled();
+        this.settleNanos = storageProperties.getIndexer().getSettleDelay().toNanos();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Marks names the application is about to create itself; their events are ignored until {@link #release}.
+     */
+    public void claim(Collection<String> fileNames) {
+        if (running) {
+            claimed.addAll(fileNames);
+        }
+    }
+
+    /**
+     * Ends a {@link #claim}; the events already queued for these files are dropped, since the application recorded
+     * (or deleted) them itself.
+     */
+    public void release(Collection<String> fileNames) {
+        if (running) {
+            for (String fileName : fileNames) {
+                pending.remove(layout.pathFor(fileName));
+            }
+            claimed.removeAll(fileNames);
+        }
+    }
+
+    /**
+     * Applies the pending changes that have settled (or a full scan if one is due). Files touched within
+     * {@code storage.indexer.settle-delay} may still be being written; they stay pending for the indexer, since a
+     * row is only ever inserted, not updated, and would keep a half-written size.
+     */
+    public SyncResultDto flush() {
+        return flush(System.nanoTime());
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        watchService = layout.root().getFileSystem().newWatchService();
+        registerAll();
+        running = true;
+        thread = Thread.ofPlatform().name("fs-indexer").daemon(true).start(this::watchLoop);
+        log.info("Filesystem indexer watching {} ({} directories)", layout.root(), watched.size());
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        watchService.close();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void watchLoop() {
+        long pollMillis = Math.max(50, TimeUnit.NANOSECONDS.toMillis(settleNanos) / 2);
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    drainEvents(key);
+                    key = watchService.poll();
+                }
+                if (reregisterRequested) {
+                    // generated was removed or replaced (e.g. by clean); watch the new tree and rescan.
+                    registerAll();
+                }
+                flush(System.nanoTime());
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException e) {
+                log.warn("Filesystem indexer iteration failed; retrying", e);
+                rescanRequested = true;
+                sleepQuietly(pollMillis);
+            }
+        }
+    }
+
+    private void drainEvents(WatchKey key) throws IOException {
+        Path dir = watched.get(key);
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rescanRequested = true;
+                continue;
+            }
+            if (dir == null || !(event.context() instanceof Path name)) {
+                continue;
+            }
+            Path child = dir.resolve(name);
+            if (dir.equals(layout.root().getParent())) {
+                if (child.equals(layout.root())) {
+                    reregisterRequested = true;
+                }
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                registerTree(child, now);
+            } else {
+                pending.put(child, now);
+            }
+        }
+        if (!key.reset()) {
+            watched.remove(key);
+            if (layout.root().equals(dir)) {
+                reregisterRequested = true;
+            }
+        }
+    }
+
+    private void registerAll() throws IOException {
+        watched.keySet().forEach(WatchKey::cancel);
+        watched.clear();
+        reregisterRequested = false;
+
+        layout.createDirectories();
+        Path storageRoot = layout.root().getParent();
+        watched.put(storageRoot.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE), storageRoot);
+        for (Path dir : layout.allDirectories()) {
+            register(dir);
+        }
+        rescanRequested = true;
+    }
+
+    /**
+     * Watches a directory that appeared after startup (and its subdirectories); files already in it are queued,
+     * since they may have been created before the watch was in place.
+     */
+    private void registerTree(Path dir, long now) throws IOException {
+        register(dir);
+        List<Path> subdirectories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                if (Files.isDirectory(entry)) {
+                    subdirectories.add(entry);
+                } else {
+                    pending.put(entry, now);
+                }
+            }
+        }
+        for (Path subdirectory : subdirectories) {
+            registerTree(subdirectory, now);
+        }
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        watched.put(key, dir);
+    }
+
+    /**
+     * Applies pending files last touched at least {@code storage.indexer.settle-delay} before {@code now} (a
+     * {@link System#nanoTime()} value).
+     */
+    private SyncResultDto flush(long now) {
+        synchronized (flushLock) {
+            if (rescanRequested) {
+                rescanRequested = false;
+                pending.clear();
+                try {
+                    SyncResultDto result = generatedFilesSync.fullScan();
+                    log.info("Filesystem indexer rescan recorded {} new files ({} rows without a file)", result.inserted(), result.missing());
+                    return result;
+                } catch (RuntimeException e) {
+                    rescanRequested = true;
+                    throw e;
+                }
+            }
+
+            List<Path> ready = new ArrayList<>();
+            pending.forEach((file, touchedAt) -> {
+                if (now - touchedAt >= settleNanos && !claimed.contains(file.getFileName().toString())
+                    && pending.remove(file, touchedAt)) {
+                    // Removed only if not touched again meanwhile, so a newer event keeps the file pending.
+                    ready.add(file);
+                }
+            });
+            if (ready.isEmpty()) {
+                return new SyncResultDto(0, 0, 0);
+            }
+            try {
+                return generatedFilesSync.applyChanges(ready);
+            } catch (RuntimeException e) {
+                long failedAt = System.nanoTime();
+                ready.forEach(file -> pending.putIfAbsent(file, failedAt));
+                throw e;
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.CleanStatus;
+import org.prodet.oci.dto.CleanStatusDto;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Empties the generated directory without blocking the caller.
+ * <p>
+ * A clean renames {@code generated} to a tombstone under {@code <storage.location>/.trash} and recreates it empty,
+ * which is a single metadata operation. The rows created up to that moment (by {@code created_at}, as ids are not
+ * ordered by insertion time across instances) and the tombstone's files are then removed in the background: rows in
+ * DELETEs of at most {@code storage.clean.delete-batch-size} rows, files on virtual threads,
+ * at most {@code storage.clean.parallelism} at once. Tombstones left behind by a restart are emptied on startup.
+ * With {@code storage.dedup.enabled}, blobs no longer linked from any generated file are removed afterwards.
+ */
+@Service
+public class GeneratedFilesCleaner {
+
+    public static final String TRASH_DIR = ".trash";
+
+    private static final int KEPT_STATUSES = 32;
+    private static final int FILE_BATCH = 1_000;
+
+    private static final Logger log = LoggerFactory.getLogger(GeneratedFilesCleaner.class);
+
+    private final AppFileRepository appFileRepository;
+    private final AppGenerationRepository appGenerationRepository;
+    private final BlobStore blobStore;
+    private final PipelineMetrics pipelineMetrics;
+    private final Path generatedDir;
+    private final Path trashDir;
+    private final int parallelism;
+    private final int deleteBatchSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("generated-clean-", 0).daemon(true).factory());
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, CleanRun> runs = new LinkedHashMap<>();
+
+    public GeneratedFilesCleaner(AppFileRepository appFileRepository, AppGenerationRepository appGenerationRepository,
+                                 GeneratedFilesSync generatedFilesSync, BlobStore blobStore, PipelineMetrics pipelineMetrics,
+                                 StorageProperties storageProperties) {
+        this.appFileRepository = appFileRepository;
+        this.pipelineMetrics = pipelineMetrics;
+        this.blobStore = blobStore;
+        this.appGenerationRepository = appGenerationRepository;
+        this.generatedDir = generatedFilesSync.generatedDir();
+        this.trashDir = generatedDir.resolveSibling(TRASH_DIR);
+        this.parallelism = Math.max(1, storageProperties.getClean().getParallelism());
+        this.deleteBatchSize = Math.max(1, storageProperties.getClean().getDeleteBatchSize());
+    }
+
+    /**
+     * Swaps the generated directory for an empty one and schedules removal of the old files and rows.
+     */
+    public synchronized CleanStatusDto clean() {
+        long id = ids.incrementAndGet();
+        Path tombstone = swapOut(id);
+        // Taken after the swap: a row inserted in between is removed with the tombstone its file went into, or its
+        // file (written to the new directory) is recorded again by the next sync.
+        OffsetDateTime cutoff = appFileRepository.currentTimestamp();
+
+        CleanRun run = new CleanRun(id, OffsetDateTime.now(ZoneOffset.UTC));
+        remember(run);
+        executor.execute(() -> purge(run, tombstone, cutoff));
+        return run.snapshot();
+    }
+
+    public synchronized Optional<CleanStatusDto> status(long id) {
+        return Optional.ofNullable(runs.get(id)).map(CleanRun::snapshot);
+    }
+
+    @PostConstruct
+    void purgeLeftoverTombstones() {
+        if (!Files.isDirectory(trashDir)) {
+            return;
+        }
+        List<Path> leftovers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(trashDir)) {
+            stream.forEach(leftovers::add);
+        } catch (IOException e) {
+            log.warn("Could not list leftover tombstones in {}", trashDir, e);
+            return;
+        }
+        for (Path tombstone : leftovers) {
+            executor.execute(() -> {
+                try {
+                    long files = deleteTree(tombstone, new AtomicLong());
+                    log.info("Removed leftover tombstone {} ({} files)", tombstone, files);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not remove leftover tombstone {}", tombstone, e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Clean did not stop within 10s; the tombstone is removed on next startup");
+        }
+    }
+
+    private Path swapOut(long id) {
+        try {
+            Files.createDirectories(trashDir);
+            Path tombstone = null;
+            if (Files.exists(generatedDir)) {
+                tombstone = trashDir.resolve("generated-" + System.currentTimeMillis() + "-" + id);
+                try {
+                    Files.move(generatedDir, tombstone, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(generatedDir, tombstone);
+                }
+            }
+            Files.createDirectories(generatedDir);
+            return tombstone;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to swap out generated directory: " + generatedDir, e);
+        }
+    }
+
+    private void purge(CleanRun run, Path tombstone, OffsetDateTime cutoff) {
+        long startNanos = System.nanoTime();
+        try {
+            int deleted;
+            do {
+                deleted = appFileRepository.deleteCreatedUpTo(cutoff, deleteBatchSize);
+                run.deletedDbRows.addAndGet(deleted);
+            } while (deleted > 0);
+            appGenerationRepository.deleteInactiveCreatedUpTo(cutoff);
+            if (tombstone != null) {
+                deleteTree(tombstone, run.deletedFiles);
+            }
+            if (blobStore.isEnabled()) {
+                blobStore.collectGarbage();
+            }
+            run.finish(CleanStatus.COMPLETED, null);
+            pipelineMetrics.cleaned(System.nanoTime() - startNanos, run.deletedFiles.get(), run.deletedDbRows.get());
+            log.info("Clean {} removed {} rows and {} files", run.id, run.deletedDbRows.get(), run.deletedFiles.get());
+        } catch (IOException | RuntimeException e) {
+            log.error("Clean {} failed", run.id, e);
+            run.finish(CleanStatus.FAILED, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * Deletes all regular files under {@code root} in parallel, then the (by then empty) directories.
+     *
+     * @return number of files deleted
+     */
+    private long deleteTree(Path root, AtomicLong deletedFiles) throws IOException {
+        long before = deletedFiles.get();
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Path> directories = new ArrayList<>();
+
+        try (ExecutorService deleters = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("clean-delete-", 0).factory())) {
+            List<Path> batch = new ArrayList<>(FILE_BATCH);
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    batch.add(file);
+                    if (batch.size() == FILE_BATCH) {
+                        submitDeletes(deleters, permits, List.copyOf(batch), deletedFiles, failure);
+                        batch.clear();
+                    }
+                    return failure.get() == null ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (!(e instanceof NoSuchFileException)) {
+                        failure.compareAndSet(null, e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    directories.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            if (!batch.isEmpty()) {
+                submitDeletes(deleters, permits, List.copyOf(batch), deletedFiles, failure);
+            }
+        }
+
+        IOException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+        // Post-order: children come before their parents.
+        for (Path dir : directories) {
+            Files.deleteIfExists(dir);
+        }
+        return deletedFiles.get() - before;
+    }
+
+    private static void submitDeletes(ExecutorService deleters, Semaphore permits, List<Path> files,
+                                      AtomicLong deletedFiles, AtomicReference<IOException> failure) {
+        permits.acquireUninterruptibly();
+        deleters.execute(() -> {
+            try {
+                for (Path file : files) {
+                    if (Files.deleteIfExists(file)) {
+                        deletedFiles.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private synchronized void remember(CleanRun run) {
+        runs.put(run.id, run);
+        while (runs.size() > KEPT_STATUSES) {
+            Long oldest = runs.keySet().iterator().next();
+            runs.remove(oldest);
+        }
+    }
+
+    private static final class CleanRun {
+        private final long id;
+        private final OffsetDateTime startedAt;
+        private final AtomicLong deletedDbRows = new AtomicLong();
+        private final AtomicLong deletedFiles = new AtomicLong();
+        private volatile CleanStatus status = CleanStatus.RUNNING;
+        private volatile OffsetDateTime finishedAt;
+        private volatile String errorMessage;
+
+        private CleanRun(long id, OffsetDateTime startedAt) {
+            this.id = id;
+            this.startedAt = startedAt;
+        }
+
+        private void finish(CleanStatus status, String errorMessage) {
+            this.errorMessage = errorMessage;
+            this.finishedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            this.status = status;
+        }
+
+        private CleanStatusDto snapshot() {
+            return new CleanStatusDto(id, status, deletedDbRows.get(), deletedFiles.get(), startedAt, finishedAt, errorMessage);
+        }
+    }
+}
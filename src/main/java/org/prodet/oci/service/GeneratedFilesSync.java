@@ -0,0 +1,350 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.FilesCreatedEventDto;
+import org.prodet.oci.dto.SyncResultDto;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppFileRepository.CompletedFile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings app_file in line with the files under {@code <storage.location>/generated}.
+ * <p>
+ * Used by the on-demand sync (full scan) and by {@link FilesystemIndexer} (only the files it saw change).
+ * Rows store the directory a file actually lives in as storage_path, so every {@link GeneratedLayout}
+ * directory is reconciled on its own, from a single ordered query over the whole tree.
+ * <p>
+ * Discovered files are written as completed rows with batched MERGE statements, so a file recorded
+ * concurrently by another sync is skipped instead of duplicated.
+ */
+@Component
+public class GeneratedFilesSync {
+
+    private static final int MAX_MERGE_ATTEMPTS = 3;
+
+    private final AppFileRepository appFileRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final GeneratedLayout layout;
+    private final ContentCompression contentCompression;
+    private final FileEventBus fileEventBus;
+    private final PipelineMetrics pipelineMetrics;
+    private final int fetchSize;
+    private final int sortChunkSize;
+    private final int batchSize;
+
+    public GeneratedFilesSync(AppFileRepository appFileRepository, GeneratedLayout layout, ContentCompression contentCompression,
+                              FileEventBus fileEventBus, PipelineMetrics pipelineMetrics, StorageProperties storageProperties,
+                              PlatformTransactionManager transactionManager) {
+        this.appFileRepository = appFileRepository;
+        this.contentCompression = contentCompression;
+        this.fileEventBus = fileEventBus;
+        this.pipelineMetrics = pipelineMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fetchSize = Math.max(1, storageProperties.getSync().getFetchSize());
+        this.sortChunkSize = Math.max(1, storageProperties.getSync().getSortChunkSize());
+        this.batchSize = Math.max(1, storageProperties.getSync().getBatchSize());
+        this.layout = layout;
+    }
+
+    public Path generatedDir() {
+        return layout.root();
+    }
+
+    /**
+     * Reconciles every layout directory with app_file: each regular file without a row gets one, rows whose file
+     * is gone are counted as missing (they are left in place, as a row may be written before its file).
+     * <p>
+     * The known names of the whole tree are read from the database in ordered keyset pages of
+     * {@code storage.sync.fetch-size} rows, and each directory's slice is merge-joined against its externally sorted
+     * listing, so memory stays bounded by {@code storage.sync.sort-chunk-size} regardless of the number of files, and
+     * the number of queries does not grow with the layout's fan-out. Files are probed and recorded between pages,
+     * never while a query's cursor (and connection) is held.
+     */
+    public SyncResultDto fullScan() {
+        long startNanos = System.nanoTime();
+        TreeJoin join = new TreeJoin(layout.fileDirectories());
+        try {
+            AppFileRepository.StoredName after = null;
+            List<AppFileRepository.StoredName> page;
+            do {
+                page = appFileRepository.findFileNamesUnder(layout.root(), after, fetchSize);
+                for (AppFileRepository.StoredName row : page) {
+                    join.known(row.storagePath(), row.fileName());
+                }
+                after = page.isEmpty() ? after : page.get(page.size() - 1);
+            } while (page.size() == fetchSize);
+            join.finish();
+        } finally {
+            join.close();
+        }
+        pipelineMetrics.synced(true, System.nanoTime() - startNanos, join.inserted);
+        return new SyncResultDto(join.inserted, join.skipped, join.missing);
+    }
+
+    /**
+     * Applies changes reported for single files (absolute paths): files that exist get a row unless they already
+     * have one, rows of files that no longer exist are removed.
+     */
+    public SyncResultDto applyChanges(Collection<Path> changedFiles) {
+        long startNanos = System.nanoTime();
+        Map<Path, List<String>> byDir = new HashMap<>();
+        for (Path file : changedFiles) {
+            byDir.computeIfAbsent(file.getParent(), dir -> new ArrayList<>()).add(file.getFileName().toString());
+        }
+
+        long inserted = 0;
+        long skipped = 0;
+        long removed = 0;
+        for (Map.Entry<Path, List<String>> entry : byDir.entrySet()) {
+            Path dir = entry.getKey();
+            List<String> present = new ArrayList<>();
+            List<String> gone = new ArrayList<>();
+            for (String name : entry.getValue()) {
+                if (Files.isRegularFile(dir.resolve(name))) {
+                    present.add(name);
+                } else if (!Files.exists(dir.resolve(name))) {
+                    gone.add(name);
+                }
+            }
+
+            for (int from = 0; from < present.size(); from += batchSize) {
+                List<String> batch = present.subList(from, Math.min(from + batchSize, present.size()));
+                long[] outcome = record(dir, batch);
+                inserted += outcome[0];
+                skipped += outcome[1];
+            }
+            if (!gone.isEmpty()) {
+                removed += appFileRepository.deleteByStoragePathAndFileNames(dir.toString(), gone);
+            }
+        }
+        pipelineMetrics.synced(false, System.nanoTime() - startNanos, inserted);
+        return new SyncResultDto(inserted, skipped, removed);
+    }
+
+    /**
+     * Stats and probes the given files of {@code dir} and merges them as completed rows in one transaction.
+     * Files that vanished since they were listed are left to a later scan or delete event.
+     *
+     * @return {@code [inserted, skipped]}
+     */
+    private long[] record(Path dir, List<String> fileNames) {
+        List<CompletedFile> rows = new ArrayList<>(fileNames.size());
+        String storagePath = dir.toString();
+        for (String name : fileNames) {
+            BasicFileAttributes attributes;
+            ContentCompression.Probe probe;
+            try {
+                attributes = Files.readAttributes(dir.resolve(name), BasicFileAttributes.class);
+                probe = contentCompression.probe(dir.resolve(name), attributes.size());
+            } catch (IOException e) {
+                continue;
+            }
+            OffsetDateTime ts = OffsetDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneOffset.UTC);
+            rows.add(new CompletedFile(storagePath, name, null, ts, ts, attributes.size(), probe.encodingToken(), probe.logicalSize()));
+        }
+        if (rows.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer inserted = transactionTemplate.execute(status -> appFileRepository.mergeCompletedBatch(rows, batchSize));
+                int insertedRows = inserted == null ? 0 : inserted;
+                if (insertedRows > 0) {
+                    fileEventBus.publish(FileEventBus.FILES_CREATED, new FilesCreatedEventDto(null, insertedRows, List.of()));
+                }
+                return new long[]{insertedRows, rows.size() - insertedRows};
+            } catch (DuplicateKeyException e) {
+                // Another sync inserted one of these names between our MERGE's lookup and insert;
+                // the batch was rolled back, and on retry those names match and are skipped.
+                if (attempt == MAX_MERGE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the rows of an ordered (storage_path, file_name) stream to one {@link MergeJoin} per layout directory, in
+     * the same order; only the directory currently joined has its listing open. Rows of directories that are not
+     * part of the layout, or that do not exist, are skipped. Paths arriving out of (binary) order mean the database
+     * sorts differently from Java, which would skip whole directories, so that fails the scan.
+     */
+    private final class TreeJoin {
+
+        private final Iterator<Path> dirs;
+        private Path dir;
+        private String dirName;
+        private String lastPath;
+        private SortedFileNames onDisk;
+        private MergeJoin join;
+        private long inserted;
+        private long skipped;
+        private long missing;
+
+        private TreeJoin(List<Path> fileDirectories) {
+            List<Path> sorted = new ArrayList<>(fileDirectories);
+            // The same order as the database's ORDER BY storage_path, whatever Path's own ordering is.
+            sorted.sort(Comparator.comparing(Path::toString));
+            this.dirs = sorted.iterator();
+            advance();
+        }
+
+        private void known(String storagePath, String name) {
+            if (lastPath != null && storagePath.compareTo(lastPath) < 0) {
+                throw new IllegalStateException(
+                    "app_file storage paths are not ordered consistently with the layout ('" + lastPath + "' before '" + storagePath + "')");
+            }
+            lastPath = storagePath;
+            while (dirName != null && dirName.compareTo(storagePath) < 0) {
+                finishDirectory();
+                advance();
+            }
+            if (dirName != null && dirName.equals(storagePath) && join != null) {
+                join.known(name);
+            }
+        }
+
+        private void finish() {
+            while (dirName != null) {
+                finishDirectory();
+                advance();
+            }
+        }
+
+        private void advance() {
+            if (!dirs.hasNext()) {
+                dir = null;
+                dirName = null;
+                return;
+            }
+            dir = dirs.next();
+            dirName = dir.toString();
+            if (!Files.isDirectory(dir)) {
+                return;
+            }
+            try {
+                onDisk = SortedFileNames.of(dir, sortChunkSize);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to sync filesystem from: " + dir, e);
+            }
+            join = new MergeJoin(dir, onDisk);
+        }
+
+        private void finishDirectory() {
+            if (join == null) {
+                return;
+            }
+            try {
+                SyncResultDto result = join.finish();
+                inserted += result.inserted();
+                skipped += result.skipped();
+                missing += result.missing();
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            join = null;
+            if (onDisk != null) {
+                try {
+                    onDisk.close();
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to sync filesystem from: " + dir, e);
+                } finally {
+                    onDisk = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the sorted directory names alongside the sorted database names; names only on disk are recorded
+     * in batches of {@code storage.sync.batch-size}, names only in the database are counted as missing.
+     */
+    private final class MergeJoin {
+
+        private final Path dir;
+        private final Iterator<String> onDisk;
+        private final List<String> toRecord = new ArrayList<>(batchSize);
+        private String diskHead;
+        private String lastKnown;
+        private long inserted;
+        private long skipped;
+        private long missing;
+
+        private MergeJoin(Path dir, Iterator<String> onDisk) {
+            this.dir = dir;
+            this.onDisk = onDisk;
+            this.diskHead = onDisk.hasNext() ? onDisk.next() : null;
+        }
+
+        private void known(String name) {
+            if (lastKnown != null) {
+                int order = name.compareTo(lastKnown);
+                if (order == 0) {
+                    return;
+                }
+                if (order < 0) {
+                    throw new IllegalStateException(
+                        "app_file names are not ordered consistently with the directory listing ('" + lastKnown + "' before '" + name + "')");
+                }
+            }
+            lastKnown = name;
+
+            while (diskHead != null && diskHead.compareTo(name) < 0) {
+                onlyOnDisk(diskHead);
+                diskHead = onDisk.hasNext() ? onDisk.next() : null;
+            }
+            if (diskHead != null && diskHead.equals(name)) {
+                diskHead = onDisk.hasNext() ? onDisk.next() : null;
+            } else {
+                missing++;
+            }
+        }
+
+        private SyncResultDto finish() {
+            while (diskHead != null) {
+                onlyOnDisk(diskHead);
+                diskHead = onDisk.hasNext() ? onDisk.next() : null;
+            }
+            flush();
+            return new SyncResultDto(inserted, skipped, missing);
+        }
+
+        private void onlyOnDisk(String name) {
+            toRecord.add(name);
+            if (toRecord.size() == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (toRecord.isEmpty()) {
+                return;
+            }
+            long[] outcome = record(dir, toRecord);
+            inserted += outcome[0];
+            skipped += outcome[1];
+            toRecord.clear();
+        }
+    }
+}
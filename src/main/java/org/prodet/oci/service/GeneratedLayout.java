@@ -0,0 +1,129 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.config.properties.StorageProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where generated files live under {@code <storage.location>/generated}.
+ * <p>
+ * With {@code storage.layout.levels > 0} a file goes into nested hash-prefix directories, e.g. {@code generated/3a/0f/name}
+ * for two levels with a fan-out of 64, so no single directory grows past a few thousand entries.
+ * The shard depends only on the file name, so any component can find a file from its name alone.
+ */
+@Component
+public class GeneratedLayout {
+
+    private static final int MAX_FAN_OUT = 256;
+
+    private final Path root;
+    private final int levels;
+    private final int fanOut;
+    private final String shardFormat;
+
+    public GeneratedLayout(StorageProperties storageProperties) {
+        StorageProperties.Layout layout = storageProperties.getLayout();
+        this.root = Paths.get(storageProperties.getLocation()).resolve("generated").toAbsolutePath().normalize();
+        this.levels = Math.max(0, layout.getLevels());
+        this.fanOut = Math.clamp(layout.getFanOut(), 2, MAX_FAN_OUT);
+        this.shardFormat = "%0" + Integer.toHexString(fanOut - 1).length() + "x";
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * Directory a file with this name belongs in; the root itself for the flat layout.
+     */
+    public Path dirFor(String fileName) {
+        Path dir = root;
+        int nameHash = fileName.hashCode();
+        for (int level = 0; level < levels; level++) {
+            int hash = mix(nameHash + level * 0x9e3779b9);
+            dir = dir.resolve(shardName(Integer.remainderUnsigned(hash, fanOut)));
+        }
+        return dir;
+    }
+
+    public Path pathFor(String fileName) {
+        return dirFor(fileName).resolve(fileName);
+    }
+
+    /**
+     * Every directory that can hold files in the current layout, in ascending path order:
+     * the root (older, flat files) followed by the leaf shard directories.
+     */
+    public List<Path> fileDirectories() {
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(root);
+        if (levels > 0) {
+            addLeaves(root, levels, dirs);
+        }
+        return dirs;
+    }
+
+    /**
+     * Root plus every shard directory at every level, parents before children.
+     */
+    public List<Path> allDirectories() {
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(root);
+        addAll(root, levels, dirs);
+        return dirs;
+    }
+
+    public void createDirectories() throws IOException {
+        for (Path dir : allDirectories()) {
+            Files.createDirectories(dir);
+        }
+    }
+
+    private void addLeaves(Path parent, int remaining, List<Path> out) {
+        for (int shard = 0; shard < fanOut; shard++) {
+            Path dir = parent.resolve(shardName(shard));
+            if (remaining == 1) {
+                out.add(dir);
+            } else {
+                addLeaves(dir, remaining - 1, out);
+            }
+        }
+    }
+
+    private void addAll(Path parent, int remaining, List<Path> out) {
+        if (remaining == 0) {
+            return;
+        }
+        for (int shard = 0; shard < fanOut; shard++) {
+            Path dir = parent.resolve(shardName(shard));
+            out.add(dir);
+            addAll(dir, remaining - 1, out);
+        }
+    }
+
+    private String shardName(int shard) {
+        return String.format(shardFormat, shard);
+    }
+
+    /**
+     * Spreads {@link String#hashCode()} (stable across JVMs) over all bits; the murmur3 32-bit finalizer.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
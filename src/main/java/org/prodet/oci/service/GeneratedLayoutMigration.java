@@ -0,0 +1,105 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppFileRepository.MovedFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves generated files that are not where {@link GeneratedLayout} expects them (e.g. a flat directory from before
+ * sharding, or a different fan-out) and updates their app_file rows.
+ * <p>
+ * Each batch updates the rows first and then moves the files, so an interrupted run leaves files that are still
+ * misplaced and simply picks them up again on the next run.
+ */
+@Service
+public class GeneratedLayoutMigration {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final Logger log = LoggerFactory.getLogger(GeneratedLayoutMigration.class);
+
+    private final GeneratedLayout layout;
+    private final AppFileRepository appFileRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public GeneratedLayoutMigration(GeneratedLayout layout, AppFileRepository appFileRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.layout = layout;
+        this.appFileRepository = appFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return number of files moved
+     */
+    public long migrate() throws IOException {
+        Path root = layout.root();
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+
+        List<MovedFile> batch = new ArrayList<>(BATCH_SIZE);
+        long[] moved = {0};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String name = file.getFileName().toString();
+                Path targetDir = layout.dirFor(name);
+                if (file.getParent().equals(targetDir)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (Files.exists(targetDir.resolve(name))) {
+                    log.warn("Not moving {}: {} already exists", file, targetDir.resolve(name));
+                    return FileVisitResult.CONTINUE;
+                }
+                batch.add(new MovedFile(name, file.getParent().toString(), targetDir.toString()));
+                if (batch.size() == BATCH_SIZE) {
+                    moved[0] += apply(batch);
+                    batch.clear();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (!batch.isEmpty()) {
+            moved[0] += apply(batch);
+        }
+
+        log.info("Layout migration moved {} generated files under {}", moved[0], root);
+        return moved[0];
+    }
+
+    private int apply(List<MovedFile> batch) throws IOException {
+        transactionTemplate.executeWithoutResult(status -> appFileRepository.updateStoragePaths(batch, BATCH_SIZE));
+        int moved = 0;
+        for (MovedFile move : batch) {
+            Path source = Path.of(move.fromStoragePath(), move.fileName());
+            Path target = Path.of(move.toStoragePath(), move.fileName());
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target);
+            }
+            moved++;
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,163 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.dto.ContentEncoding;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes all files of a generation as one ZIP archive, built while it is sent.
+ * <p>
+ * Rows are read in short keyset pages, so neither a large generation nor a slow client holds a connection or a
+ * cursor open. Content that is already compressed (compressed at rest, or by its format) goes in as STORED entries,
+ * which costs a CRC pass over the file instead of a second round of compression; everything else is deflated.
+ */
+@Service
+public class GenerationArchiveService {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * File name extensions of formats that deflate cannot shrink further.
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+        "gz", "tgz", "zst", "zip", "jar", "xz", "bz2", "7z", "rar",
+        "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "pdf", "docx", "xlsx");
+
+    private final AppFileRepository appFileRepository;
+    private final AppGenerationRepository appGenerationRepository;
+
+    public GenerationArchiveService(AppFileRepository appFileRepository, AppGenerationRepository appGenerationRepository) {
+        this.appFileRepository = appFileRepository;
+        this.appGenerationRepository = appGenerationRepository;
+    }
+
+    public boolean exists(long generationId) {
+        return appGenerationRepository.findById(generationId).isPresent();
+    }
+
+    /**
+     * Writes the finished files of generation {@code generationId} to {@code out} as a ZIP archive. Files compressed
+     * at rest keep their encoding and get its extension ({@code .gz}, {@code .zst}) appended to the entry name.
+     * Files that are gone from disk are left out.
+     *
+     * @return number of entries written
+     */
+    public int writeArchive(long generationId, OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int entries = 0;
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        WritableByteChannel zipChannel = Channels.newChannel(zip);
+        long afterId = 0;
+        while (true) {
+            List<AppFileDto> rows = appFileRepository.findByGenerationIdAfter(generationId, afterId, PAGE_SIZE);
+            for (AppFileDto row : rows) {
+                if (row.creationFinishedAt() != null && writeEntry(zip, zipChannel, row, buffer)) {
+                    if (entries++ == 0) {
+                        // Get the first bytes to the client right away instead of after a full buffer.
+                        zip.flush();
+                    }
+                }
+            }
+            if (rows.size() < PAGE_SIZE) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).id();
+        }
+        zip.finish();
+        zip.flush();
+        return entries;
+    }
+
+    private static boolean writeEntry(ZipOutputStream zip, WritableByteChannel zipChannel, AppFileDto row, ByteBuffer buffer) throws IOException {
+        Path file = Path.of(row.storagePath(), row.fileName());
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        try (channel) {
+            ContentEncoding encoding = ContentEncoding.ofToken(row.contentEncoding()).orElse(ContentEncoding.IDENTITY);
+            String name = encoding == ContentEncoding.IDENTITY ? row.fileName() : row.fileName() + "." + extensionOf(encoding);
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(row.creationFinishedAt().toInstant().toEpochMilli());
+            if (encoding != ContentEncoding.IDENTITY || isCompressedFormat(row.fileName())) {
+                // STORED entries need size and CRC up front; the second read below comes from the page cache.
+                long size = channel.size();
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crcOf(channel, size, buffer));
+            }
+            zip.putNextEntry(entry);
+            copy(channel, zipChannel, buffer);
+            zip.closeEntry();
+            return true;
+        }
+    }
+
+    private static long crcOf(FileChannel channel, long size, ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("File shrank while being archived");
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    private static void copy(FileChannel channel, WritableByteChannel target, ByteBuffer buffer) throws IOException {
+        long position = 0;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            position += read;
+        }
+    }
+
+    private static boolean isCompressedFormat(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String extensionOf(ContentEncoding encoding) {
+        return switch (encoding) {
+            case IDENTITY -> "";
+            case GZIP -> "gz";
+            case ZSTD -> "zst";
+        };
+    }
+}
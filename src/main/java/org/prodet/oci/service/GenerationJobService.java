@@ -0,0 +1,144 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PreDestroy;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.dto.AppGenerationDto;
+import org.prodet.oci.dto.GenerationProgressDto;
+import org.prodet.oci.dto.GenerationStatus;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs generations in the background on a bounded worker pool and reports their progress. With
+ * {@code generation.tasks.enabled} generations are handed to {@link GenerationTaskService} instead, which spreads
+ * them over all instances.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private final FileGenerationService fileGenerationService;
+    private final GenerationTaskService generationTaskService;
+    private final AppGenerationRepository appGenerationRepository;
+    private final FileEventBus fileEventBus;
+    private final PipelineMetrics pipelineMetrics;
+    private final int maxCount;
+    private final ThreadPoolExecutor executor;
+    private final Map<Long, GenerationProgress> active = new ConcurrentHashMap<>();
+
+    public GenerationJobService(FileGenerationService fileGenerationService, GenerationTaskService generationTaskService,
+                                AppGenerationRepository appGenerationRepository, FileEventBus fileEventBus,
+                                PipelineMetrics pipelineMetrics, GenerationProperties generationProperties) {
+        this.fileGenerationService = fileGenerationService;
+        this.generationTaskService = generationTaskService;
+        this.appGenerationRepository = appGenerationRepository;
+        this.fileEventBus = fileEventBus;
+        this.pipelineMetrics = pipelineMetrics;
+        GenerationProperties.Jobs jobs = generationProperties.getJobs();
+        this.maxCount = jobs.getMaxCount();
+        int workers = Math.max(1, jobs.getMaxConcurrent());
+        this.executor = new ThreadPoolExecutor(
+            workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, jobs.getQueueCapacity())),
+            Thread.ofPlatform().name("generation-job-", 0).daemon(true).factory(),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Records a queued generation and hands it to the worker pool.
+     *
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public GenerationProgressDto submit(int count) {
+        if (count < 1 || count > maxCount) {
+            throw new IllegalArgumentException("count must be between 1 and " + maxCount);
+        }
+        if (generationTaskService.isEnabled()) {
+            return generationTaskService.submit(count);
+        }
+
+        OffsetDateTime submittedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        long generationId = appGenerationRepository.insertQueued(count, submittedAt);
+        GenerationProgress progress = new GenerationProgress(generationId, count, submittedAt);
+        active.put(generationId, progress);
+
+        try {
+            executor.execute(() -> run(progress));
+        } catch (RejectedExecutionException e) {
+            active.remove(generationId);
+            appGenerationRepository.markFailed(generationId, OffsetDateTime.now(ZoneOffset.UTC), "Rejected: generation job queue is full");
+            throw e;
+        }
+
+        log.info("Queued generation job {} for {} files", generationId, count);
+        return progress.snapshot();
+    }
+
+    public Optional<GenerationProgressDto> progress(long generationId) {
+        GenerationProgress live = active.get(generationId);
+        if (live != null) {
+            return Optional.of(live.snapshot());
+        }
+        return appGenerationRepository.findById(generationId).map(GenerationJobService::fromRow);
+    }
+
+    private void run(GenerationProgress progress) {
+        long generationId = progress.generationId();
+        pipelineMetrics.generationStarted();
+        try {
+            fileGenerationService.runGenerationJob(progress);
+        } catch (RuntimeException e) {
+            log.error("Generation job {} failed", generationId, e);
+            progress.markFailed(e.getMessage());
+            OffsetDateTime failedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            try {
+                appGenerationRepository.markFailed(generationId, failedAt, String.valueOf(e.getMessage()));
+            } catch (RuntimeException markError) {
+                log.warn("Could not mark generation {} as failed", generationId, markError);
+            }
+            fileEventBus.publish(FileEventBus.GENERATION_FINISHED, progress.finishedSnapshot(failedAt));
+        } finally {
+            pipelineMetrics.generationEnded();
+            active.remove(generationId);
+        }
+    }
+
+    static GenerationProgressDto fromRow(AppGenerationDto row) {
+        long created = row.createdCount() == null ? 0 : row.createdCount();
+        long bytes = row.createdBytes() == null ? 0 : row.createdBytes();
+        Long elapsedNanos = row.status() == GenerationStatus.QUEUED
+            ? null
+            : Duration.between(row.generationStartedAt(),
+                row.generationFinishedAt() != null ? row.generationFinishedAt() : OffsetDateTime.now(ZoneOffset.UTC)).toNanos();
+        return GenerationProgress.toDto(row.id(), row.status(), row.requestedCount(), created, bytes,
+            row.generationStartedAt(), row.generationFinishedAt(), elapsedNanos, row.errorMessage());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        for (GenerationProgress progress : active.values()) {
+            if (progress.status() == GenerationStatus.QUEUED) {
+                appGenerationRepository.markFailed(progress.generationId(), OffsetDateTime.now(ZoneOffset.UTC), "Cancelled: application shut down");
+            }
+        }
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Generation jobs did not stop within 30s");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.dto.GenerationProgressDto;
+import org.prodet.oci.dto.GenerationStatus;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of one generation job, written by the worker and read by progress queries.
+ */
+public final class GenerationProgress {
+
+    private final long generationId;
+    private final int requestedCount;
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong createdBytes = new AtomicLong();
+
+    private volatile GenerationStatus status = GenerationStatus.QUEUED;
+    private volatile OffsetDateTime startedAt;
+    private volatile long startedNanos;
+    private volatile String errorMessage;
+
+    public GenerationProgress(long generationId, int requestedCount, OffsetDateTime submittedAt) {
+        this.generationId = generationId;
+        this.requestedCount = requestedCount;
+        this.startedAt = submittedAt;
+    }
+
+    public long generationId() {
+        return generationId;
+    }
+
+    public int requestedCount() {
+        return requestedCount;
+    }
+
+    public GenerationStatus status() {
+        return status;
+    }
+
+    void markRunning(OffsetDateTime startedAt) {
+        this.startedAt = startedAt;
+        this.startedNanos = System.nanoTime();
+        this.status = GenerationStatus.RUNNING;
+    }
+
+    void add(int files, long bytes) {
+        createdCount.addAndGet(files);
+        createdBytes.addAndGet(bytes);
+    }
+
+    void markCompleted() {
+        status = GenerationStatus.COMPLETED;
+    }
+
+    void markFailed(String errorMessage) {
+        this.errorMessage = errorMessage;
+        this.status = GenerationStatus.FAILED;
+    }
+
+    public GenerationProgressDto snapshot() {
+        GenerationStatus currentStatus = status;
+        long created = createdCount.get();
+        long bytes = createdBytes.get();
+        if (currentStatus != GenerationStatus.RUNNING) {
+            return toDto(generationId, currentStatus, requestedCount, created, bytes, startedAt, null, null, errorMessage);
+        }
+        long elapsedNanos = System.nanoTime() - startedNanos;
+        return toDto(generationId, currentStatus, requestedCount, created, bytes, startedAt, null, elapsedNanos, errorMessage);
+    }
+
+    /**
+     * Final view of a job that ended at {@code finishedAt}, with its overall rates.
+     */
+    public GenerationProgressDto finishedSnapshot(OffsetDateTime finishedAt) {
+        Long elapsedNanos = startedNanos == 0 ? null : System.nanoTime() - startedNanos;
+        return toDto(generationId, status, requestedCount, createdCount.get(), createdBytes.get(), startedAt, finishedAt,
+            elapsedNanos, errorMessage);
+    }
+
+    /**
+     * Builds a progress view; rates are derived from {@code elapsedNanos}, the ETA only for running generations.
+     */
+    static GenerationProgressDto toDto(long id, GenerationStatus status, int requestedCount, long created, long bytes,
+                                       OffsetDateTime startedAt, OffsetDateTime finishedAt, Long elapsedNanos, String errorMessage) {
+        Double filesPerSecond = null;
+        Double bytesPerSecond = null;
+        Long etaMillis = null;
+        if (elapsedNanos != null && elapsedNanos > 0) {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            filesPerSecond = created / seconds;
+            bytesPerSecond = bytes / seconds;
+            if (status == GenerationStatus.RUNNING && created > 0) {
+                etaMillis = Math.round((requestedCount - created) / filesPerSecond * 1000);
+            }
+        }
+        return new GenerationProgressDto(id, status, requestedCount, created, bytes, startedAt, finishedAt,
+            filesPerSecond, bytesPerSecond, etaMillis, errorMessage);
+    }
+}
@@ -0,0 +1,235 @@
+package org.prodet.oci.service;
+
+import jakarta.annotation.PreDestroy;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.dto.GenerationProgressDto;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.prodet.oci.repository.AppGenerationTaskRepository;
+import org.prodet.oci.repository.AppGenerationTaskRepository.GenerationTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed background generations ({@code generation.tasks.enabled}): a submitted generation is stored as
+ * app_generation_task rows of {@code generation.tasks.size} files, and the workers of every instance sharing the
+ * database claim and run them, so one large generation spreads over all instances.
+ * <p>
+ * Progress lives in the database only: app_generation's totals grow as tasks commit, and the instance that commits
+ * the last task completes the generation. A task whose worker dies is claimed again once its lease expires.
+ */
+@Service
+public class GenerationTaskService {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationTaskService.class);
+
+    private final FileGenerationService fileGenerationService;
+    private final AppGenerationRepository appGenerationRepository;
+    private final AppGenerationTaskRepository appGenerationTaskRepository;
+    private final FileEventBus fileEventBus;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int taskSize;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final String workerId;
+    private final Semaphore freeWorkers;
+    /**
+     * Null unless {@code generation.tasks.enabled}; poll() returns before touching it otherwise.
+     */
+    private final ExecutorService workers;
+
+    public GenerationTaskService(FileGenerationService fileGenerationService, AppGenerationRepository appGenerationRepository,
+                                 AppGenerationTaskRepository appGenerationTaskRepository, FileEventBus fileEventBus,
+                                 GenerationProperties generationProperties, PlatformTransactionManager transactionManager) {
+        this.fileGenerationService = fileGenerationService;
+        this.appGenerationRepository = appGenerationRepository;
+        this.appGenerationTaskRepository = appGenerationTaskRepository;
+        this.fileEventBus = fileEventBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        GenerationProperties.Tasks tasks = generationProperties.getTasks();
+        this.enabled = tasks.isEnabled();
+        this.taskSize = Math.max(1, tasks.getSize());
+        this.batchSize = Math.max(1, generationProperties.getBatchSize());
+        this.lease = tasks.getLease();
+        this.maxAttempts = Math.max(1, tasks.getMaxAttempts());
+        this.workerId = tasks.getWorkerId() != null ? tasks.getWorkerId() : defaultWorkerId();
+        int workerCount = enabled ? Math.max(0, tasks.getWorkers()) : 0;
+        this.freeWorkers = new Semaphore(workerCount);
+        this.workers = enabled
+            ? Executors.newFixedThreadPool(Math.max(1, workerCount), Thread.ofPlatform().name("generation-task-", 0).daemon(true).factory())
+            : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String workerId() {
+        return workerId;
+    }
+
+    /**
+     * Records a queued generation together with all its tasks, in one transaction.
+     */
+    public GenerationProgressDto submit(int count) {
+        OffsetDateTime submittedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        Long generationId = transactionTemplate.execute(status -> {
+            long id = appGenerationRepository.insertQueued(count, submittedAt);
+            appGenerationTaskRepository.insertQueued(plan(id, count, taskSize), batchSize);
+            return id;
+        });
+        log.info("Queued generation {} for {} files as {} tasks", generationId, count, (count + taskSize - 1) / taskSize);
+        return new GenerationProgress(generationId, count, submittedAt).snapshot();
+    }
+
+    /**
+     * Splits a generation into tasks of {@code taskSize} files. Half the files (rounded down) are xml, as for
+     * the other generation paths: a task's share is the number of xml files among the first files up to its end
+     * minus those before its start.
+     */
+    static List<GenerationTask> plan(long generationId, int count, int taskSize) {
+        List<GenerationTask> tasks = new ArrayList<>((count + taskSize - 1) / taskSize);
+        for (int offset = 0, index = 0; offset < count; offset += taskSize, index++) {
+            int size = Math.min(taskSize, count - offset);
+            int xmlCount = (offset + size) / 2 - offset / 2;
+            tasks.add(new GenerationTask(generationId, index, offset, size, xmlCount, 0));
+        }
+        return tasks;
+    }
+
+    /**
+     * Fails generations whose tasks ran out of attempts without their worker reporting back, then claims queued
+     * tasks for as long as this instance has free workers.
+     */
+    @Scheduled(fixedDelayString = "${generation.tasks.poll-interval:PT1S}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        failExpiredTasks();
+        claimWhileFree();
+    }
+
+    private void claimWhileFree() {
+        while (!workers.isShutdown() && freeWorkers.tryAcquire()) {
+            Optional<GenerationTask> claimed;
+            try {
+                OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+                claimed = transactionTemplate.execute(status -> appGenerationTaskRepository.claimNext(workerId, now, now.plus(lease), maxAttempts));
+            } catch (RuntimeException e) {
+                freeWorkers.release();
+                log.warn("Could not claim a generation task", e);
+                return;
+            }
+            if (claimed == null || claimed.isEmpty()) {
+                freeWorkers.release();
+                return;
+            }
+
+            GenerationTask task = claimed.get();
+            try {
+                workers.execute(() -> {
+                    try {
+                        run(task);
+                    } finally {
+                        freeWorkers.release();
+                    }
+                    // Keep going without waiting for the next poll while there is work.
+                    claimWhileFree();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the lease expires and another instance takes the task over.
+                freeWorkers.release();
+                return;
+            }
+        }
+    }
+
+    private void run(GenerationTask task) {
+        long generationId = task.generationId();
+        try {
+            fileGenerationService.runGenerationTask(task, workerId).ifPresent(generation -> {
+                log.info("Generation {} completed ({} files, {} bytes)", generationId, generation.createdCount(), generation.createdBytes());
+                fileEventBus.publish(FileEventBus.GENERATION_FINISHED, GenerationJobService.fromRow(generation));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Task {} of generation {} failed (attempt {} of {})", task.taskIndex(), generationId, task.attempts(), maxAttempts, e);
+            try {
+                if (appGenerationTaskRepository.release(task, workerId, String.valueOf(e.getMessage()), maxAttempts)) {
+                    failGeneration(generationId, "Task " + task.taskIndex() + " failed: " + e.getMessage());
+                }
+            } catch (RuntimeException releaseError) {
+                log.warn("Could not release task {} of generation {}; it is retried when its lease expires",
+                    task.taskIndex(), generationId, releaseError);
+            }
+        }
+    }
+
+    private void failExpiredTasks() {
+        String message = "Lease expired on the last of " + maxAttempts + " attempts";
+        List<Long> generationIds;
+        try {
+            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            generationIds = transactionTemplate.execute(status -> appGenerationTaskRepository.failExpired(now, maxAttempts, message));
+        } catch (RuntimeException e) {
+            log.warn("Could not look for expired generation tasks", e);
+            return;
+        }
+        if (generationIds != null) {
+            generationIds.forEach(generationId -> failGeneration(generationId, message));
+        }
+    }
+
+    private void failGeneration(long generationId, String message) {
+        OffsetDateTime failedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        transactionTemplate.executeWithoutResult(status -> {
+            appGenerationTaskRepository.failQueued(generationId, message);
+            appGenerationRepository.markFailed(generationId, failedAt, message);
+        });
+        log.error("Generation {} failed: {}", generationId, message);
+        appGenerationRepository.findById(generationId)
+            .ifPresent(generation -> fileEventBus.publish(FileEventBus.GENERATION_FINISHED, GenerationJobService.fromRow(generation)));
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (workers == null) {
+            return;
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Generation tasks did not finish within 30s; they run again once their lease expires");
+            workers.shutdownNow();
+        }
+    }
+}
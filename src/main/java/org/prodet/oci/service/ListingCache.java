@@ -0,0 +1,181 @@
+package org.prodet.oci.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.config.properties.ListingProperties;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.dto.AppGenerationDto;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the newest files and generations (the first listing pages, which dashboards poll) in memory.
+ * <p>
+ * A cached page is served until the repository it came from is written to ({@link AppFileRepository#changeVersion()},
+ * {@link AppGenerationRepository#changeVersion()}) or {@code listing.cache.ttl} passes, whichever is first; writes
+ * of other instances are only seen once the ttl passes. With {@code generation.tasks.enabled} every instance writes,
+ * so the cache is off. A page also answers requests for fewer rows. Hits and misses are counted as {@code listing.cache.requests}.
+ * <p>
+ * Every cached page has a version, kept across reloads for as long as the rows stay equal; clients get it as an
+ * ETag and can revalidate against {@link #cachedFilesVersion} without a query.
+ */
+@Component
+public class ListingCache {
+
+    private final Window<AppFileDto> files;
+    private final Window<AppGenerationDto> generations;
+
+    public ListingCache(AppFileRepository appFileRepository, AppGenerationRepository appGenerationRepository,
+                        ListingProperties listingProperties, GenerationProperties generationProperties,
+                        MeterRegistry meterRegistry) {
+        ListingProperties.Cache cache = listingProperties.getCache();
+        // Distributed generations write from every instance, so changes made elsewhere are the norm rather than
+        // the exception; a page and its ETag could then be a whole ttl behind.
+        boolean enabled = cache.isEnabled() && !generationProperties.getTasks().isEnabled();
+        this.files = new Window<>("files", appFileRepository::changeVersion,
+            limit -> appFileRepository.findPage(limit, null), enabled, cache, meterRegistry);
+        this.generations = new Window<>("generations", appGenerationRepository::changeVersion,
+            limit -> appGenerationRepository.findPage(limit, null), enabled, cache, meterRegistry);
+    }
+
+    /**
+     * The {@code limit} newest files, as {@link AppFileRepository#findPage} returns them without a cursor.
+     */
+    public Listing<AppFileDto> latestFiles(int limit) {
+        return files.get(limit);
+    }
+
+    /**
+     * The {@code limit} newest generations, as {@link AppGenerationRepository#findPage} returns them without a cursor.
+     */
+    public Listing<AppGenerationDto> latestGenerations(int limit) {
+        return generations.get(limit);
+    }
+
+    /**
+     * Version {@link #latestFiles} would return right now, if that is known without a query.
+     */
+    public Optional<String> cachedFilesVersion(int limit) {
+        return files.cachedVersion(limit);
+    }
+
+    /**
+     * Version {@link #latestGenerations} would return right now, if that is known without a query.
+     */
+    public Optional<String> cachedGenerationsVersion(int limit) {
+        return generations.cachedVersion(limit);
+    }
+
+    /**
+     * Rows of a listing; {@code version} changes whenever they do, and is null when caching is disabled.
+     */
+    public record Listing<T>(List<T> rows, String version) {
+    }
+
+    private static final class Window<T> {
+
+        private final LongSupplier version;
+        private final IntFunction<List<T>> loader;
+        private final boolean enabled;
+        private final long ttlNanos;
+        private final Counter hits;
+        private final Counter misses;
+        private final Map<Integer, Page<T>> pages;
+        /**
+         * Versions start from the startup time, so they do not repeat across restarts.
+         */
+        private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+        private final AtomicLong loads = new AtomicLong();
+
+        Window(String name, LongSupplier version, IntFunction<List<T>> loader, boolean enabled, ListingProperties.Cache cache,
+               MeterRegistry meterRegistry) {
+            this.version = version;
+            this.loader = loader;
+            this.enabled = enabled && cache.getMaxEntries() > 0 && cache.getTtl().isPositive();
+            this.ttlNanos = cache.getTtl().toNanos();
+            this.hits = requests(meterRegistry, name, "hit");
+            this.misses = requests(meterRegistry, name, "miss");
+            int maxEntries = cache.getMaxEntries();
+            this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        Listing<T> get(int limit) {
+            if (!enabled) {
+                return new Listing<>(loader.apply(limit), null);
+            }
+            // Read before loading: a write that lands during the query leaves the page already outdated.
+            long currentVersion = version.getAsLong();
+            long now = System.nanoTime();
+            Listing<T> cached = cached(limit, currentVersion, now);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+
+            misses.increment();
+            List<T> rows = List.copyOf(loader.apply(limit));
+            synchronized (pages) {
+                Page<T> previous = pages.get(limit);
+                String pageVersion = previous != null && previous.rows().equals(rows)
+                    ? previous.version()
+                    : epoch + "." + Long.toString(loads.incrementAndGet(), 36);
+                pages.put(limit, new Page<>(currentVersion, now, rows, pageVersion));
+                return new Listing<>(rows, pageVersion);
+            }
+        }
+
+        Optional<String> cachedVersion(int limit) {
+            if (!enabled) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(cached(limit, version.getAsLong(), System.nanoTime())).map(Listing::version);
+        }
+
+        private Listing<T> cached(int limit, long currentVersion, long now) {
+            synchronized (pages) {
+                Page<T> exact = pages.get(limit);
+                if (exact != null && exact.isValid(currentVersion, now, ttlNanos)) {
+                    return new Listing<>(exact.rows(), exact.version());
+                }
+                for (Map.Entry<Integer, Page<T>> entry : pages.entrySet()) {
+                    Page<T> page = entry.getValue();
+                    if (entry.getKey() > limit && page.isValid(currentVersion, now, ttlNanos)) {
+                        // The newest n rows are a prefix of the newest m > n rows.
+                        return new Listing<>(page.rows().subList(0, Math.min(limit, page.rows().size())), page.version());
+                    }
+                }
+                return null;
+            }
+        }
+
+        private static Counter requests(MeterRegistry meterRegistry, String listing, String result) {
+            return Counter.builder("listing.cache.requests")
+                .description("First-page listing requests answered from memory (hit) or the database (miss)")
+                .tag("listing", listing)
+                .tag("result", result)
+                .register(meterRegistry);
+        }
+    }
+
+    private record Page<T>(long changeVersion, long loadedAtNanos, List<T> rows, String version) {
+
+        boolean isValid(long currentVersion, long now, long ttlNanos) {
+            return changeVersion == currentVersion && now - loadedAtNanos < ttlNanos;
+        }
+    }
+}
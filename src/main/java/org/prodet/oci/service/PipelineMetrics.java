@@ -0,0 +1,197 @@
+package org.prodet.oci.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the generation, sync and clean pipelines.
+ * <p>
+ * Generation time is split into {@link Phase phases} ({@code generation.phase}, with histograms), so a slowdown can
+ * be traced to waiting for a DB permit, the inserts, writing files or the final updates. Throughput comes from the
+ * {@code generation.files} and {@code generation.bytes} counters (per second via {@code rate()}).
+ */
+@Component
+public class PipelineMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+    private final Counter files;
+    private final Counter bytes;
+    private final AtomicInteger activeGenerations = new AtomicInteger();
+    private final Timer fullSync;
+    private final Timer incrementalSync;
+    private final Counter syncedFiles;
+    private final Timer clean;
+    private final Counter cleanedFiles;
+    private final Counter cleanedRows;
+    private final Path generatedDir;
+    private final AtomicLong generatedDirBytes = new AtomicLong();
+    private final AtomicLong generatedDirFiles = new AtomicLong();
+
+    public PipelineMetrics(MeterRegistry meterRegistry, GeneratedLayout layout, FileEventBus fileEventBus) {
+        this.generatedDir = layout.root();
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, Timer.builder("generation.phase")
+                .description("Time spent per generation phase (per file for write, per statement or batch for DB phases)")
+                .tag("phase", phase.tag)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+        this.files = Counter.builder("generation.files").description("Generated files").register(meterRegistry);
+        this.bytes = Counter.builder("generation.bytes").description("Bytes of generated files as stored").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("generation.active", activeGenerations, AtomicInteger::get)
+            .description("Generations in progress (synchronous and jobs)")
+            .register(meterRegistry);
+
+        this.fullSync = syncTimer(meterRegistry, "full");
+        this.incrementalSync = syncTimer(meterRegistry, "incremental");
+        this.syncedFiles = Counter.builder("sync.files").description("Files recorded by sync").register(meterRegistry);
+
+        this.clean = Timer.builder("clean.duration").description("Duration of a clean run").register(meterRegistry);
+        this.cleanedFiles = Counter.builder("clean.files").description("Files removed by clean").register(meterRegistry);
+        this.cleanedRows = Counter.builder("clean.rows").description("app_file rows removed by clean").register(meterRegistry);
+
+        Gauge.builder("storage.generated.size", generatedDirBytes, AtomicLong::get)
+            .description("Bytes under the generated directory, as of the last scan")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("storage.generated.files", generatedDirFiles, AtomicLong::get)
+            .description("Files under the generated directory, as of the last scan")
+            .register(meterRegistry);
+
+        Gauge.builder("events.subscribers", fileEventBus, FileEventBus::subscriberCount)
+            .description("Open event streams")
+            .register(meterRegistry);
+        FunctionCounter.builder("events.subscribers.dropped", fileEventBus, FileEventBus::droppedSubscribers)
+            .description("Event streams disconnected for falling behind")
+            .register(meterRegistry);
+    }
+
+    public <T> T time(Phase phase, Supplier<T> action) {
+        return phases.get(phase).record(action);
+    }
+
+    public void time(Phase phase, Runnable action) {
+        phases.get(phase).record(action);
+    }
+
+    public void generationStarted() {
+        activeGenerations.incrementAndGet();
+    }
+
+    public void generationEnded() {
+        activeGenerations.decrementAndGet();
+    }
+
+    public void created(long fileCount, long byteCount) {
+        files.increment(fileCount);
+        bytes.increment(byteCount);
+    }
+
+    /**
+     * @param full whether it was a full scan rather than the indexer's incremental changes
+     */
+    public void synced(boolean full, long durationNanos, long recordedFiles) {
+        (full ? fullSync : incrementalSync).record(durationNanos, TimeUnit.NANOSECONDS);
+        syncedFiles.increment(recordedFiles);
+    }
+
+    public void cleaned(long durationNanos, long fileCount, long rowCount) {
+        clean.record(durationNanos, TimeUnit.NANOSECONDS);
+        cleanedFiles.increment(fileCount);
+        cleanedRows.increment(rowCount);
+    }
+
+    /**
+     * Walks the generated directory for the {@code storage.generated.*} gauges; a stat per file, so it runs on its
+     * own schedule ({@code storage.usage-scan-interval}) rather than per scrape.
+     */
+    @Scheduled(fixedDelayString = "${storage.usage-scan-interval:PT5M}", initialDelayString = "PT10S")
+    public void scanGeneratedDirectory() {
+        if (!Files.isDirectory(generatedDir)) {
+            generatedDirBytes.set(0);
+            generatedDirFiles.set(0);
+            return;
+        }
+        long[] totals = {0, 0};
+        try {
+            Files.walkFileTree(generatedDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        totals[0] += attrs.size();
+                        totals[1]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                    if (e instanceof NoSuchFileException) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    throw e;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not measure {}", generatedDir, e);
+            return;
+        }
+        generatedDirBytes.set(totals[0]);
+        generatedDirFiles.set(totals[1]);
+    }
+
+    private static Timer syncTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("sync.duration")
+            .description("Duration of a sync (full scan, or the indexer's incremental changes)")
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
+
+    public enum Phase {
+        /**
+         * Waiting for one of the {@code generation.db-concurrency} permits.
+         */
+        DB_WAIT("db-wait"),
+        /**
+         * Inserting app_file rows (a started row, or a batch of completed ones).
+         */
+        DB_INSERT("db-insert"),
+        /**
+         * Writing (or linking) one file.
+         */
+        WRITE("write"),
+        /**
+         * Finishing a row, or recording a generation's totals.
+         */
+        DB_UPDATE("db-update");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Seed files used by {@link FileGenerationService}, loaded once into read-only direct buffers.
+ * <p>
+ * Seeds come from the classpath ({@code media/seed-files/xml|json}); when {@code generation.seed-directory}
+ * is set, its {@code xml/} and {@code json/} subdirectories are used instead and re-read whenever their
+ * contents change (checked at most every {@code generation.seed-reload-interval}).
+ */
+@Component
+public class SeedRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SeedRegistry.class);
+
+    private static final String XML_PATTERN = "classpath*:media/seed-files/xml/*.xml";
+    private static final String JSON_PATTERN = "classpath*:media/seed-files/json/*.json";
+
+    private final Path seedDirectory;
+    private final long reloadIntervalNanos;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile Seeds seeds;
+    private volatile long nextCheckNanos;
+
+    public SeedRegistry(GenerationProperties properties) {
+        this.seedDirectory = properties.getSeedDirectory() == null || properties.getSeedDirectory().isBlank()
+            ? null
+            : Paths.get(properties.getSeedDirectory()).toAbsolutePath().normalize();
+        this.reloadIntervalNanos = properties.getSeedReloadInterval().toNanos();
+
+        this.seeds = loadClasspathSeeds();
+        if (seedDirectory != null) {
+            reloadIfChanged();
+        }
+        this.nextCheckNanos = System.nanoTime() + reloadIntervalNanos;
+        log.info("Loaded {} xml and {} json seed files ({})",
+            seeds.xml().size(), seeds.json().size(), seedDirectory == null ? "classpath" : seedDirectory);
+    }
+
+    /**
+     * Returns a random seed of the given type.
+     */
+    public Seed pick(SeedType type) {
+        List<Seed> candidates = current().of(type);
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("Missing seed files under src/main/resources/media/seed-files (xml/json)");
+        }
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    /**
+     * Checks that both seed types are available.
+     */
+    public void requireSeeds() {
+        Seeds snapshot = current();
+        if (snapshot.xml().isEmpty() || snapshot.json().isEmpty()) {
+            throw new IllegalStateException("Missing seed files under src/main/resources/media/seed-files (xml/json)");
+        }
+    }
+
+    /**
+     * Writes the seed to {@code target} (replacing it) straight from the shared buffer and returns the bytes written.
+     */
+    public long write(Seed seed, Path target) throws IOException {
+        return write(seed.content(), target);
+    }
+
+    /**
+     * Writes {@code buffer}'s remaining bytes to {@code target} (replacing it) and returns the bytes written.
+     */
+    public long write(ByteBuffer buffer, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            return written;
+        }
+    }
+
+    private Seeds current() {
+        if (seedDirectory != null && System.nanoTime() - nextCheckNanos >= 0 && reloadLock.tryLock()) {
+            try {
+                reloadIfChanged();
+                nextCheckNanos = System.nanoTime() + reloadIntervalNanos;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return seeds;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            String fingerprint = fingerprint(seedDirectory);
+            if (fingerprint.equals(seeds.fingerprint())) {
+                return;
+            }
+            Seeds loaded = new Seeds(
+                readDirectory(seedDirectory.resolve("xml"), ".xml"),
+                readDirectory(seedDirectory.resolve("json"), ".json"),
+                fingerprint
+            );
+            if (loaded.xml().isEmpty() || loaded.json().isEmpty()) {
+                log.warn("Seed directory {} has no xml or json seeds; keeping the current seeds", seedDirectory);
+                return;
+            }
+            seeds = loaded;
+            log.info("Reloaded {} xml and {} json seed files from {}", loaded.xml().size(), loaded.json().size(), seedDirectory);
+        } catch (IOException e) {
+            log.warn("Could not reload seeds from {}; keeping the current seeds", seedDirectory, e);
+        }
+    }
+
+    private static Seeds loadClasspathSeeds() {
+        return new Seeds(readResources(XML_PATTERN), readResources(JSON_PATTERN), "classpath");
+    }
+
+    private static List<Seed> readResources(String pattern) {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(pattern);
+            List<Seed> result = new ArrayList<>(resources.length);
+            for (Resource resource : resources) {
+                result.add(Seed.of(resource.getFilename(), resource.getContentAsByteArray()));
+            }
+            return List.copyOf(result);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load seed resources: " + pattern, e);
+        }
+    }
+
+    private static List<Seed> readDirectory(Path dir, String extension) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Seed> result = new ArrayList<>();
+        for (Path file : listSeedFiles(dir, extension)) {
+            result.add(Seed.of(file.getFileName().toString(), Files.readAllBytes(file)));
+        }
+        return List.copyOf(result);
+    }
+
+    private static String fingerprint(Path root) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String sub : List.of("xml", "json")) {
+            Path dir = root.resolve(sub);
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            for (Path file : listSeedFiles(dir, "." + sub)) {
+                sb.append(file.getFileName()).append(':')
+                    .append(Files.size(file)).append(':')
+                    .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Path> listSeedFiles(Path dir, String extension) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream
+                .filter(Files::isRegularFile)
+                .filter(path -> path.getFileName().toString().endsWith(extension))
+                .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                .toList();
+        }
+    }
+
+    public enum SeedType {
+        XML("xml"),
+        JSON("json");
+
+        private final String extension;
+
+        SeedType(String extension) {
+            this.extension = extension;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    /**
+     * One seed file; {@link #content()} returns an independent read-only view, so it is safe to use concurrently.
+     */
+    public static final class Seed {
+
+        private final String name;
+        private final ByteBuffer buffer;
+        private final String sha256;
+
+        private Seed(String name, ByteBuffer buffer, String sha256) {
+            this.name = name;
+            this.buffer = buffer;
+            this.sha256 = sha256;
+        }
+
+        static Seed of(String name, byte[] bytes) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            return new Seed(name, direct.asReadOnlyBuffer(), sha256Of(bytes));
+        }
+
+        private static String sha256Of(byte[] bytes) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Lower-case hex SHA-256 of the content.
+         */
+        public String sha256() {
+            return sha256;
+        }
+
+        public ByteBuffer content() {
+            return buffer.duplicate();
+        }
+
+        public int size() {
+            return buffer.remaining();
+        }
+    }
+
+    private record Seeds(List<Seed> xml, List<Seed> json, String fingerprint) {
+
+        List<Seed> of(SeedType type) {
+            return type == SeedType.XML ? xml : json;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.prodet.oci.service;
+
+import org.prodet.oci.service.SeedRegistry.SeedType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws an exact number of xml and json types in random order without materializing the whole sequence,
+ * so arbitrarily large generations can be planned chunk by chunk.
+ */
+final class SeedTypeSampler {
+
+    private long remainingXml;
+    private long remainingJson;
+
+    SeedTypeSampler(long xmlCount, long jsonCount) {
+        this.remainingXml = xmlCount;
+        this.remainingJson = jsonCount;
+    }
+
+    List<SeedType> next(int count) {
+        List<SeedType> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long remaining = remainingXml + remainingJson;
+            if (remaining == 0) {
+                throw new IllegalStateException("No seed types left to draw");
+            }
+            if (ThreadLocalRandom.current().nextLong(remaining) < remainingXml) {
+                remainingXml--;
+                types.add(SeedType.XML);
+            } else {
+                remainingJson--;
+                types.add(SeedType.JSON);
+            }
+        }
+        return types;
+    }
+}
@@ -0,0 +1,167 @@
+package org.prodet.oci.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Names of the regular files in a directory, iterated in ascending {@link String} order with bounded memory.
+ * <p>
+ * The directory is read once; every {@code chunkSize} names are sorted and spilled to a temporary run file,
+ * and the runs are merged lazily while iterating. Directories smaller than one chunk never touch the disk.
+ */
+final class SortedFileNames implements Iterator<String>, Closeable {
+
+    private final List<Run> runs = new ArrayList<>();
+    private final PriorityQueue<Run> heads = new PriorityQueue<>(Comparator.comparing((Run run) -> run.head));
+    private Iterator<String> inMemory;
+
+    private SortedFileNames() {
+    }
+
+    static SortedFileNames of(Path dir, int chunkSize) throws IOException {
+        SortedFileNames names = new SortedFileNames();
+        try {
+            names.load(dir, Math.max(1, chunkSize));
+        } catch (IOException | RuntimeException e) {
+            names.close();
+            throw e;
+        }
+        return names;
+    }
+
+    private void load(Path dir, int chunkSize) throws IOException {
+        List<String> chunk = new ArrayList<>(Math.min(chunkSize, 16_384));
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path path : stream) {
+                chunk.add(path.getFileName().toString());
+                if (chunk.size() == chunkSize) {
+                    spill(chunk);
+                    chunk.clear();
+                }
+            }
+        }
+
+        if (runs.isEmpty()) {
+            Collections.sort(chunk);
+            inMemory = chunk.iterator();
+            return;
+        }
+        if (!chunk.isEmpty()) {
+            spill(chunk);
+        }
+        for (Run run : runs) {
+            if (run.advance()) {
+                heads.add(run);
+            }
+        }
+    }
+
+    private void spill(List<String> chunk) throws IOException {
+        Collections.sort(chunk);
+        Path file = Files.createTempFile("sync-names-", ".run");
+        Run run = new Run(file);
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (String name : chunk) {
+                out.writeUTF(name);
+            }
+        }
+        run.open();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return inMemory != null ? inMemory.hasNext() : !heads.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        if (inMemory != null) {
+            return inMemory.next();
+        }
+        Run run = heads.poll();
+        if (run == null) {
+            throw new NoSuchElementException();
+        }
+        String name = run.head;
+        try {
+            if (run.advance()) {
+                heads.add(run);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read sorted run: " + run.file, e);
+        }
+        return name;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Run run : runs) {
+            try {
+                run.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        runs.clear();
+        heads.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Run {
+        private final Path file;
+        private DataInputStream in;
+        private String head;
+
+        private Run(Path file) {
+            this.file = file;
+        }
+
+        private void open() throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        private boolean advance() throws IOException {
+            try {
+                head = in.readUTF();
+                return true;
+            } catch (EOFException e) {
+                head = null;
+                return false;
+            }
+        }
+
+        private void close() throws IOException {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.prodet.oci.service;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.stream.Stream;
 
@@ -12,6 +13,16 @@ public interface StorageService {
 
     void store(MultipartFile file);
 
+    /**
+     * Stores {@code content} under {@code filename} without buffering it; returns the number of bytes written.
+     */
+    long store(String filename, InputStream content);
+
+    /**
+     * Moves an already complete file into storage under {@code filename}; returns its size.
+     */
+    long store(String filename, Path completedFile);
+
     Stream<Path> loadAll();
 
     Path load(String filename);
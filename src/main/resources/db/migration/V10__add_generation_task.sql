@@ -0,0 +1,29 @@
+-- Slices of a distributed generation (generation.tasks.enabled): every instance claims QUEUED rows with
+-- SELECT ... FOR UPDATE SKIP LOCKED, and a claim expires at lease_until so tasks of a crashed instance run again.
+CREATE TABLE app_generation_task (
+    generation_id NUMBER NOT NULL,
+    task_index NUMBER(10, 0) NOT NULL,
+    file_offset NUMBER(10, 0) NOT NULL,
+    file_count NUMBER(10, 0) NOT NULL,
+    xml_count NUMBER(10, 0) NOT NULL,
+    status VARCHAR2(16) DEFAULT 'QUEUED' NOT NULL,
+    attempts NUMBER(10, 0) DEFAULT 0 NOT NULL,
+    claimed_by VARCHAR2(128) NULL,
+    lease_until TIMESTAMP WITH TIME ZONE NULL,
+    finished_at TIMESTAMP WITH TIME ZONE NULL,
+    created_bytes NUMBER(19, 0) NULL,
+    error_message VARCHAR2(1000) NULL,
+    CONSTRAINT pk_app_generation_task PRIMARY KEY (generation_id, task_index),
+    CONSTRAINT fk_app_generation_task_generation
+        FOREIGN KEY (generation_id) REFERENCES app_generation (id) ON DELETE CASCADE,
+    CONSTRAINT ck_app_generation_task_status CHECK (
+        status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED')
+    ),
+    CONSTRAINT ck_app_generation_task_counts CHECK (
+        file_count > 0 AND xml_count >= 0 AND xml_count <= file_count
+    )
+);
+
+CREATE INDEX ix_app_generation_task_status ON app_generation_task (status, generation_id, task_index);
+
+GRANT SELECT, INSERT, UPDATE, DELETE ON app_generation_task TO ${appUser};
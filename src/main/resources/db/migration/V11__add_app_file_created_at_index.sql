@@ -0,0 +1,2 @@
+-- Lets clean delete the rows created before its cutoff in bounded batches without rescanning app_file each time.
+CREATE INDEX ix_app_file_created_at ON app_file (created_at);
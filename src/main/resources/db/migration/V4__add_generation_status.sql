@@ -0,0 +1,10 @@
+ALTER TABLE app_generation ADD status VARCHAR2(16) DEFAULT 'RUNNING' NOT NULL;
+ALTER TABLE app_generation ADD created_bytes NUMBER(19, 0) NULL;
+ALTER TABLE app_generation ADD error_message VARCHAR2(1000) NULL;
+
+UPDATE app_generation SET status = 'COMPLETED' WHERE generation_finished_at IS NOT NULL;
+
+ALTER TABLE app_generation ADD CONSTRAINT ck_app_generation_status CHECK (
+    status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED')
+);
+CREATE INDEX ix_app_generation_status ON app_generation (status);
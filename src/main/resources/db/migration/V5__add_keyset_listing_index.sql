@@ -0,0 +1,4 @@
+-- Keyset pagination of /api/files walks (creation_started_at, id) in descending order;
+-- this index serves both the first page and every "after cursor" page with a range scan.
+CREATE INDEX ix_app_file_started_id ON app_file (creation_started_at DESC, id DESC);
+DROP INDEX ix_app_file_started_at;
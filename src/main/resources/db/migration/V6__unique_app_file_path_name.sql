@@ -0,0 +1,12 @@
+-- Sync records discovered files with MERGE; the unique index turns a race between two
+-- concurrent syncs into a duplicate-key error (retried) instead of a duplicate row.
+DELETE FROM app_file a
+WHERE EXISTS (
+    SELECT 1 FROM app_file b
+    WHERE b.storage_path = a.storage_path
+      AND b.file_name = a.file_name
+      AND b.id < a.id
+);
+
+DROP INDEX ix_app_file_path_name;
+CREATE UNIQUE INDEX ux_app_file_path_name ON app_file (storage_path, file_name);
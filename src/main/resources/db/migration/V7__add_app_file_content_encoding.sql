@@ -0,0 +1,4 @@
+-- Files may be stored compressed: file_size_bytes is the size on disk, logical_size_bytes the decoded size
+-- (NULL when unknown), content_encoding the HTTP content-coding of the stored bytes (NULL for plain files).
+ALTER TABLE app_file ADD content_encoding VARCHAR2(16) NULL;
+ALTER TABLE app_file ADD logical_size_bytes NUMBER(19, 0) NULL;
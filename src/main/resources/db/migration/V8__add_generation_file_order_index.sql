@@ -0,0 +1,3 @@
+-- Lets a generation's files be paged in id order (archive export) straight off the index.
+DROP INDEX ix_app_file_generation_id;
+CREATE INDEX ix_app_file_generation_id_id ON app_file (generation_id, id);
@@ -0,0 +1,80 @@
+package org.prodet.oci;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.prodet.oci.config.AdmissionInterceptor;
+import org.prodet.oci.config.Bulkhead;
+import org.prodet.oci.config.properties.AdmissionProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class AdmissionInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private AdmissionInterceptor interceptor(int maxQueued, Duration maxWait) {
+        AdmissionProperties.Limit limit = new AdmissionProperties.Limit();
+        limit.setMaxConcurrent(1);
+        limit.setMaxQueued(maxQueued);
+        limit.setMaxWait(maxWait);
+        limit.setRetryAfter(Duration.ofMillis(2500));
+        return new AdmissionInterceptor(new Bulkhead("generate", limit, registry), Set.of("POST"));
+    }
+
+    private static MockHttpServletRequest post() {
+        return new MockHttpServletRequest("POST", "/api/files/generate");
+    }
+
+    @Test
+    void requestBeyondTheLimitIsRejectedWithRetryAfter() {
+        AdmissionInterceptor interceptor = interceptor(0, Duration.ZERO);
+        MockHttpServletRequest first = post();
+        Assertions.assertThat(interceptor.preHandle(first, new MockHttpServletResponse(), new Object())).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        Assertions.assertThatThrownBy(() -> interceptor.preHandle(post(), rejected, new Object()))
+            .isInstanceOfSatisfying(ResponseStatusException.class, e -> Assertions.assertThat(e.getStatusCode().value()).isEqualTo(429));
+        Assertions.assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+        Assertions.assertThat(registry.get("admission.rejected").tag("group", "generate").tag("reason", "queue-full").counter().count()).isEqualTo(1);
+        Assertions.assertThat(registry.get("admission.active").tag("group", "generate").gauge().value()).isEqualTo(1);
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), new Object(), null);
+        Assertions.assertThat(interceptor.preHandle(post(), new MockHttpServletResponse(), new Object())).isTrue();
+    }
+
+    @Test
+    void queuedRequestGetsTheSlotWhenItIsReleased() throws Exception {
+        AdmissionInterceptor interceptor = interceptor(1, Duration.ofSeconds(10));
+        MockHttpServletRequest first = post();
+        interceptor.preHandle(first, new MockHttpServletResponse(), new Object());
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> interceptor.preHandle(post(), new MockHttpServletResponse(), new Object()));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("admission.queued").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertThat(registry.get("admission.queued").gauge().value()).isEqualTo(1);
+        Assertions.assertThatThrownBy(() -> interceptor.preHandle(post(), new MockHttpServletResponse(), new Object()))
+            .isInstanceOf(ResponseStatusException.class);
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), new Object(), null);
+        Assertions.assertThat(waiting.get(5, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(registry.get("admission.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void otherMethodsOnTheSamePathPassThrough() {
+        AdmissionInterceptor interceptor = interceptor(0, Duration.ZERO);
+        interceptor.preHandle(post(), new MockHttpServletResponse(), new Object());
+
+        Assertions.assertThat(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/files/generate"), new MockHttpServletResponse(), new Object())).isTrue();
+    }
+}
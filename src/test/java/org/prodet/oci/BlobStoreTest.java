@@ -0,0 +1,56 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.service.BlobStore;
+import org.prodet.oci.service.SeedRegistry;
+import org.prodet.oci.service.SeedRegistry.SeedType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BlobStore blobStore() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        properties.getDedup().setEnabled(true);
+        return new BlobStore(properties);
+    }
+
+    @Test
+    void filesWithTheSameContentShareOneBlob() throws Exception {
+        BlobStore blobStore = blobStore();
+        SeedRegistry.Seed seed = new SeedRegistry(new GenerationProperties()).pick(SeedType.XML);
+
+        long size = blobStore.link(seed.sha256(), seed.content(), tempDir.resolve("a.xml"));
+        blobStore.link(seed.sha256(), seed.content(), tempDir.resolve("b.xml"));
+
+        Assertions.assertThat(size).isEqualTo(seed.size());
+        Assertions.assertThat(Files.isSameFile(tempDir.resolve("a.xml"), tempDir.resolve("b.xml"))).isTrue();
+        Assertions.assertThat(Files.getAttribute(tempDir.resolve("a.xml"), "unix:nlink")).isEqualTo(3);
+        Assertions.assertThat(Files.getPosixFilePermissions(tempDir.resolve("a.xml"))).doesNotContain(PosixFilePermission.OWNER_WRITE);
+    }
+
+    @Test
+    void garbageCollectionKeepsBlobsUntilTheirLastFileIsGone() throws Exception {
+        BlobStore blobStore = blobStore();
+        SeedRegistry.Seed seed = new SeedRegistry(new GenerationProperties()).pick(SeedType.JSON);
+        blobStore.link(seed.sha256(), seed.content(), tempDir.resolve("a.json"));
+        blobStore.link(seed.sha256(), seed.content(), tempDir.resolve("b.json"));
+
+        Files.delete(tempDir.resolve("a.json"));
+        Assertions.assertThat(blobStore.collectGarbage()).isZero();
+        Assertions.assertThat(Files.readAllBytes(tempDir.resolve("b.json"))).hasSize(seed.size());
+
+        Files.delete(tempDir.resolve("b.json"));
+        Assertions.assertThat(blobStore.collectGarbage()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,175 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.dto.UploadSessionDto;
+import org.prodet.oci.service.ChunkedUploadService;
+import org.prodet.oci.service.FileSystemStorageService;
+import org.prodet.oci.service.GeneratedLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class ChunkedUploadServiceTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private ChunkedUploadService uploadService(Duration sessionTimeout) {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        properties.getUploads().setSessionTimeout(sessionTimeout);
+        return new ChunkedUploadService(new FileSystemStorageService(properties, new GeneratedLayout(properties)), properties);
+    }
+
+    @Test
+    void chunksSentInParallelAndOutOfOrderAssembleTheFile() throws Exception {
+        byte[] content = new byte[10 * CHUNK_SIZE + 123];
+        new Random(11).nextBytes(content);
+        ChunkedUploadService service = uploadService(Duration.ofHours(1));
+
+        UploadSessionDto session = service.create("assembled.bin", content.length, CHUNK_SIZE);
+        Assertions.assertThat(session.chunkCount()).isEqualTo(11);
+
+        List<Integer> order = new ArrayList<>(session.missingChunks());
+        Collections.shuffle(order, new Random(3));
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int index : order) {
+                writes.add(executor.submit(() -> service.writeChunk(session.id(), index, new ByteArrayInputStream(chunk(content, index)))));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        }
+
+        Assertions.assertThat(service.status(session.id()).orElseThrow().missingChunks()).isEmpty();
+        service.commit(session.id());
+
+        Assertions.assertThat(Files.readAllBytes(tempDir.resolve("assembled.bin"))).isEqualTo(content);
+        Assertions.assertThat(service.status(session.id())).isEmpty();
+    }
+
+    @Test
+    void fileStaysInvisibleUntilEveryChunkHasArrived() {
+        byte[] content = new byte[3 * CHUNK_SIZE];
+        ChunkedUploadService service = uploadService(Duration.ofHours(1));
+        UploadSessionDto session = service.create("incomplete.bin", content.length, CHUNK_SIZE);
+
+        service.writeChunk(session.id(), 0, new ByteArrayInputStream(chunk(content, 0)));
+        service.writeChunk(session.id(), 2, new ByteArrayInputStream(chunk(content, 2)));
+
+        Assertions.assertThat(service.status(session.id()).orElseThrow().missingChunks()).containsExactly(1);
+        Assertions.assertThatThrownBy(() -> service.commit(session.id())).isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(tempDir.resolve("incomplete.bin")).doesNotExist();
+
+        service.writeChunk(session.id(), 1, new ByteArrayInputStream(chunk(content, 1)));
+        service.commit(session.id());
+        Assertions.assertThat(tempDir.resolve("incomplete.bin")).exists();
+    }
+
+    @Test
+    void rejectsChunksOfTheWrongLength() {
+        ChunkedUploadService service = uploadService(Duration.ofHours(1));
+        UploadSessionDto session = service.create("short.bin", 2 * CHUNK_SIZE, CHUNK_SIZE);
+
+        Assertions.assertThatThrownBy(() -> service.writeChunk(session.id(), 0, new ByteArrayInputStream(new byte[CHUNK_SIZE - 1])))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> service.writeChunk(session.id(), 1, new ByteArrayInputStream(new byte[CHUNK_SIZE + 1])))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(service.status(session.id()).orElseThrow().missingChunks()).containsExactly(0, 1);
+    }
+
+    @Test
+    void refusesChunkSizesThatWouldNeedTooManyChunks() {
+        ChunkedUploadService service = uploadService(Duration.ofHours(1));
+
+        Assertions.assertThatThrownBy(() -> service.create("tiny-chunks.bin", 20L * 1024 * 1024 * 1024, 1))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> service.create("many-chunks.bin", 10_001L * CHUNK_SIZE, CHUNK_SIZE))
+            .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThat(service.create("small.bin", 100, 100).chunkCount()).isEqualTo(1);
+    }
+
+    @Test
+    void statusListsOnlyTheFirstMissingChunks() {
+        ChunkedUploadService service = uploadService(Duration.ofHours(1));
+
+        UploadSessionDto session = service.create("large.bin", 2_000L * CHUNK_SIZE, CHUNK_SIZE);
+
+        Assertions.assertThat(session.missingCount()).isEqualTo(2_000);
+        Assertions.assertThat(session.missingChunks()).hasSize(UploadSessionDto.MISSING_LISTED).startsWith(0, 1, 2);
+    }
+
+    @Test
+    void abortGivesUpOnAChunkStuckMidWrite() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        properties.getUploads().setCloseWait(Duration.ofMillis(50));
+        properties.getUploads().setMaxSessions(1);
+        ChunkedUploadService service = new ChunkedUploadService(new FileSystemStorageService(properties, new GeneratedLayout(properties)), properties);
+        UploadSessionDto session = service.create("stuck.bin", CHUNK_SIZE, CHUNK_SIZE);
+
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        InputStream stuck = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+        };
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> write = executor.submit(() -> service.writeChunk(session.id(), 0, stuck));
+            reading.await();
+
+            Assertions.assertThatThrownBy(() -> service.abort(session.id())).isInstanceOf(IllegalStateException.class);
+            Assertions.assertThatThrownBy(() -> service.create("second.bin", 1, null)).isInstanceOf(IllegalStateException.class);
+
+            resume.countDown();
+            Assertions.assertThatThrownBy(write::get).hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+        Assertions.assertThat(service.abort(session.id())).isTrue();
+        Assertions.assertThat(service.create("second.bin", 1, null).chunkCount()).isEqualTo(1);
+    }
+
+    @Test
+    void idleSessionsAreDiscardedWithTheirData() throws Exception {
+        ChunkedUploadService service = uploadService(Duration.ZERO);
+        UploadSessionDto session = service.create("abandoned.bin", CHUNK_SIZE, CHUNK_SIZE);
+
+        Assertions.assertThat(service.expireIdleSessions()).isEqualTo(1);
+
+        Assertions.assertThat(service.status(session.id())).isEmpty();
+        try (var parts = Files.list(tempDir.resolve(ChunkedUploadService.SESSIONS_DIR))) {
+            Assertions.assertThat(parts).isEmpty();
+        }
+    }
+
+    private static byte[] chunk(byte[] content, int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK_SIZE));
+    }
+}
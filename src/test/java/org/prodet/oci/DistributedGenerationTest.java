@@ -0,0 +1,92 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.dto.GenerationProgressDto;
+import org.prodet.oci.dto.GenerationStatus;
+import org.prodet.oci.service.GenerationJobService;
+import org.prodet.oci.service.GenerationTaskService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.UUID;
+
+/**
+ * Two application instances sharing one H2 database work on the same generation. Scheduled polls are effectively off;
+ * the test polls each instance itself while holding the generation's row lock, so neither can commit a task (and go
+ * on to drain the queue) before the other has claimed one.
+ */
+class DistributedGenerationTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void instancesSharingTheDatabaseSplitAGenerationBetweenThem() throws Exception {
+        String url = "jdbc:h2:mem:distributed-" + UUID.randomUUID() + ";MODE=Oracle;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=30000";
+        try (ConfigurableApplicationContext first = start(url, "first");
+             ConfigurableApplicationContext second = start(url, "second")) {
+            GenerationJobService jobs = first.getBean(GenerationJobService.class);
+            long generationId = jobs.submit(300).id();
+
+            try (Connection lock = first.getBean(DataSource.class).getConnection()) {
+                lock.setAutoCommit(false);
+                try (PreparedStatement ps = lock.prepareStatement("SELECT id FROM app_generation WHERE id = ? FOR UPDATE")) {
+                    ps.setLong(1, generationId);
+                    ps.executeQuery().close();
+                }
+                first.getBean(GenerationTaskService.class).poll();
+                second.getBean(GenerationTaskService.class).poll();
+                lock.rollback();
+            }
+
+            GenerationProgressDto progress = jobs.progress(generationId).orElseThrow();
+            long deadline = System.nanoTime() + 60_000_000_000L;
+            while (progress.status() != GenerationStatus.COMPLETED && progress.status() != GenerationStatus.FAILED
+                && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+                progress = jobs.progress(generationId).orElseThrow();
+            }
+
+            Assertions.assertThat(progress.status()).isEqualTo(GenerationStatus.COMPLETED);
+            Assertions.assertThat(progress.createdCount()).isEqualTo(300);
+
+            JdbcTemplate jdbcTemplate = second.getBean(JdbcTemplate.class);
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT file_name) FROM app_file WHERE generation_id = ?", Integer.class, generationId)).isEqualTo(300);
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM app_file WHERE generation_id = ? AND file_name LIKE '%.xml'", Integer.class, generationId)).isEqualTo(150);
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM app_generation_task WHERE generation_id = ? AND status = 'COMPLETED'", Integer.class, generationId)).isEqualTo(30);
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM app_file WHERE generation_id = ?", Integer.class, generationId)).isEqualTo(300);
+            Assertions.assertThat(jdbcTemplate.queryForObject(
+                "SELECT status FROM app_generation WHERE id = ?", String.class, generationId)).isEqualTo("COMPLETED");
+            Assertions.assertThat(jdbcTemplate.queryForList(
+                "SELECT DISTINCT claimed_by FROM app_generation_task WHERE generation_id = ?", String.class, generationId))
+                .containsExactlyInAnyOrder("first", "second");
+        }
+    }
+
+    private ConfigurableApplicationContext start(String url, String workerId) {
+        return new SpringApplicationBuilder(OciApplication.class)
+            .profiles("dev")
+            .run(
+                "--server.port=0",
+                "--spring.datasource.url=" + url,
+                "--spring.h2.console.enabled=false",
+                "--storage.location=" + tempDir.resolve("uploads"),
+                "--generation.tasks.enabled=true",
+                "--generation.tasks.size=10",
+                "--generation.tasks.workers=1",
+                "--generation.tasks.poll-interval=PT1H",
+                "--generation.tasks.worker-id=" + workerId
+            );
+    }
+}
@@ -0,0 +1,144 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.controller.FileContentController;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.service.ContentCompression;
+import org.prodet.oci.service.FileContentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class FileContentControllerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final byte[] content = new byte[100_000];
+    private byte[] compressed;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(5).nextBytes(content);
+        Files.write(tempDir.resolve("data.bin"), content);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(content);
+        }
+        compressed = gzipped.toByteArray();
+        Files.write(tempDir.resolve("data.json"), compressed);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+
+        AppFileRepository repository = Mockito.mock(AppFileRepository.class);
+        Mockito.when(repository.findById(Mockito.anyLong())).thenReturn(Optional.empty());
+        Mockito.when(repository.findById(1L))
+            .thenReturn(Optional.of(new AppFileDto(1L, null, tempDir.toString(), "data.bin", now, now, content.length, null, null)));
+        Mockito.when(repository.findById(2L))
+            .thenReturn(Optional.of(new AppFileDto(2L, null, tempDir.toString(), "data.bin", now, null, 0, null, null)));
+        Mockito.when(repository.findById(4L))
+            .thenReturn(Optional.of(new AppFileDto(4L, null, tempDir.toString(), "data.json", now, now, compressed.length, "gzip", (long) content.length)));
+        mockMvc = MockMvcBuilders.standaloneSetup(new FileContentController(new FileContentService(repository, new ContentCompression(new StorageProperties())))).build();
+    }
+
+    @Test
+    void servesWholeFileWithValidators() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/1/content")).andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getContentAsByteArray()).isEqualTo(content);
+        Assertions.assertThat(response.getHeader(HttpHeaders.ETAG)).isNotBlank();
+        Assertions.assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotBlank();
+        Assertions.assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+    }
+
+    @Test
+    void answersMatchingEtagWithNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/files/1/content")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/1/content").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(304);
+        Assertions.assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void servesSingleByteRange() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/1/content").header(HttpHeaders.RANGE, "bytes=1000-1999"))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(206);
+        Assertions.assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 1000-1999/" + content.length);
+        Assertions.assertThat(response.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 1000, 2000));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeNoLongerMatches() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/1/content")
+                .header(HttpHeaders.RANGE, "bytes=0-9")
+                .header(HttpHeaders.IF_RANGE, "\"stale\""))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getContentAsByteArray()).hasSize(content.length);
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/1/content").header(HttpHeaders.RANGE, "bytes=200000-"))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(416);
+        Assertions.assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */" + content.length);
+    }
+
+    @Test
+    void unknownOrUnfinishedFilesAreNotFound() throws Exception {
+        Assertions.assertThat(mockMvc.perform(get("/api/files/2/content")).andReturn().getResponse().getStatus()).isEqualTo(404);
+        Assertions.assertThat(mockMvc.perform(get("/api/files/3/content")).andReturn().getResponse().getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    void sendsCompressedFilesAsStoredWhenTheClientAcceptsTheEncoding() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/4/content").header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        Assertions.assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        Assertions.assertThat(response.getContentAsByteArray()).isEqualTo(compressed);
+    }
+
+    @Test
+    void decodesCompressedFilesForOtherClients() throws Exception {
+        MockHttpServletResponse plain = mockMvc.perform(get("/api/files/4/content").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+            .andReturn().getResponse();
+        MockHttpServletResponse encoded = mockMvc.perform(get("/api/files/4/content").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(plain.getStatus()).isEqualTo(200);
+        Assertions.assertThat(plain.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        Assertions.assertThat(plain.getContentAsByteArray()).isEqualTo(content);
+        Assertions.assertThat(plain.getHeader(HttpHeaders.ETAG)).isNotEqualTo(encoded.getHeader(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,92 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.prodet.oci.config.properties.EventsProperties;
+import org.prodet.oci.service.FileEventBus;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class FileEventBusTest {
+
+    private FileEventBus fileEventBus(int queueCapacity) {
+        EventsProperties properties = new EventsProperties();
+        properties.setQueueCapacity(queueCapacity);
+        return new FileEventBus(properties);
+    }
+
+    @Test
+    void deliversEventsInOrder() throws Exception {
+        FileEventBus bus = fileEventBus(16);
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(3);
+        bus.subscribe(new RecordingSink(received, delivered, null)).orElseThrow();
+
+        bus.publish(FileEventBus.FILES_CREATED, 1);
+        bus.publish(FileEventBus.GENERATION_PROGRESS, 2);
+        bus.publish(FileEventBus.GENERATION_FINISHED, 3);
+
+        Assertions.assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(received).containsExactly(FileEventBus.FILES_CREATED, FileEventBus.GENERATION_PROGRESS, FileEventBus.GENERATION_FINISHED);
+    }
+
+    @Test
+    void slowSubscriberIsDroppedWithoutBlockingPublishers() throws Exception {
+        FileEventBus bus = fileEventBus(4);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        List<String> fastReceived = new CopyOnWriteArrayList<>();
+        bus.subscribe(new RecordingSink(new CopyOnWriteArrayList<>(), new CountDownLatch(0), stalled) {
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        }).orElseThrow();
+        bus.subscribe(new RecordingSink(fastReceived, new CountDownLatch(0), null)).orElseThrow();
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish(FileEventBus.FILES_CREATED, i);
+            Thread.sleep(1);
+        }
+
+        Assertions.assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(bus.droppedSubscribers()).isEqualTo(1);
+        Assertions.assertThat(bus.subscriberCount()).isEqualTo(1);
+        stalled.countDown();
+    }
+
+    private static class RecordingSink implements FileEventBus.Sink {
+
+        private final List<String> received;
+        private final CountDownLatch delivered;
+        private final CountDownLatch stall;
+
+        RecordingSink(List<String> received, CountDownLatch delivered, CountDownLatch stall) {
+            this.received = received;
+            this.delivered = delivered;
+            this.stall = stall;
+        }
+
+        @Override
+        public void send(FileEventBus.Event event) {
+            if (stall != null) {
+                try {
+                    // Like a client that stopped reading: the write never completes.
+                    stall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            received.add(event.name());
+            delivered.countDown();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.prodet.oci.controller.FileGenerationController;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.dto.PageDto;
+import org.prodet.oci.service.FileGenerationService;
+import org.prodet.oci.service.GeneratedFilesCleaner;
+import org.prodet.oci.service.GenerationArchiveService;
+import org.prodet.oci.service.GenerationJobService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class FileGenerationControllerTest {
+
+    private final FileGenerationService fileGenerationService = Mockito.mock(FileGenerationService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        AppFileDto row = new AppFileDto(1L, null, "/tmp", "a.json", now, now, 2, null, null);
+        Mockito.when(fileGenerationService.listPage(Mockito.eq(200), Mockito.isNull()))
+            .thenReturn(new PageDto<>(List.of(row), null, "v1"));
+        mockMvc = MockMvcBuilders.standaloneSetup(new FileGenerationController(fileGenerationService,
+            Mockito.mock(GenerationJobService.class), Mockito.mock(GeneratedFilesCleaner.class),
+            Mockito.mock(GenerationArchiveService.class))).build();
+    }
+
+    @Test
+    void listingCarriesAnEtag() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files")).andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"v1-200\"");
+    }
+
+    @Test
+    void cachedVersionIsRevalidatedWithoutListing() throws Exception {
+        Mockito.when(fileGenerationService.latestVersion(200)).thenReturn(Optional.of("v1"));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files").header(HttpHeaders.IF_NONE_MATCH, "\"v0-200\", W/\"v1-200\""))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(304);
+        Assertions.assertThat(response.getContentAsByteArray()).isEmpty();
+        Mockito.verify(fileGenerationService, Mockito.never()).listPage(Mockito.anyInt(), Mockito.any());
+    }
+
+    @Test
+    void unchangedPageIsNotSentAgainAfterListing() throws Exception {
+        Mockito.when(fileGenerationService.latestVersion(200)).thenReturn(Optional.empty());
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files").header(HttpHeaders.IF_NONE_MATCH, "W/\"v1-200\""))
+            .andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(304);
+        Assertions.assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+}
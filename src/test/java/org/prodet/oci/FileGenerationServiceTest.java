@@ -3,20 +3,45 @@ package org.prodet.oci;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.controller.FileContentController;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.dto.CleanStatus;
+import org.prodet.oci.dto.CleanStatusDto;
+import org.prodet.oci.dto.GenerationProgressDto;
+import org.prodet.oci.dto.GenerationStatus;
+import org.prodet.oci.dto.SyncResultDto;
 import org.prodet.oci.service.FileGenerationService;
+import org.prodet.oci.service.GeneratedFilesCleaner;
+import org.prodet.oci.service.GeneratedFilesSync;
+import org.prodet.oci.service.GeneratedLayout;
+import org.prodet.oci.service.GeneratedLayoutMigration;
+import org.prodet.oci.service.GenerationJobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @SpringBootTest
 @ActiveProfiles("dev")
@@ -28,11 +53,31 @@ class FileGenerationServiceTest {
     @DynamicPropertySource
     static void overrideProps(DynamicPropertyRegistry registry) {
         registry.add("storage.location", () -> tempDir.resolve("uploads").toString());
+        // Small runs so full syncs go through the spill-and-merge path
+        registry.add("storage.sync.sort-chunk-size", () -> "16");
     }
 
     @Autowired
     FileGenerationService fileGenerationService;
 
+    @Autowired
+    GenerationJobService generationJobService;
+
+    @Autowired
+    GeneratedFilesSync generatedFilesSync;
+
+    @Autowired
+    GeneratedFilesCleaner generatedFilesCleaner;
+
+    @Autowired
+    GeneratedLayout generatedLayout;
+
+    @Autowired
+    GeneratedLayoutMigration generatedLayoutMigration;
+
+    @Autowired
+    FileContentController fileContentController;
+
     @Autowired
     JdbcTemplate jdbcTemplate;
 
@@ -55,6 +100,70 @@ class FileGenerationServiceTest {
         }
     }
 
+    @Test
+    void batchedGenerationKeepsPerFileTimestamps() {
+        var generated = fileGenerationService.generateFiles(10);
+
+        Assertions.assertThat(generated).extracting(AppFileDto::id).doesNotHaveDuplicates();
+        for (var dto : generated) {
+            Assertions.assertThat(dto.creationFinishedAt()).isAfterOrEqualTo(dto.creationStartedAt());
+            OffsetDateTime storedFinishedAt = jdbcTemplate.queryForObject(
+                "SELECT creation_finished_at FROM app_file WHERE id = ?",
+                OffsetDateTime.class,
+                dto.id()
+            );
+            Assertions.assertThat(storedFinishedAt).isCloseTo(dto.creationFinishedAt(), Assertions.within(1, ChronoUnit.MILLIS));
+        }
+    }
+
+    @Test
+    void parallelGenerationReturnsFilesInRequestOrder() {
+        var generated = fileGenerationService.generateFiles(40);
+
+        for (int i = 0; i < generated.size(); i++) {
+            Assertions.assertThat(generated.get(i).fileName()).contains("-" + (i + 1) + "-");
+        }
+    }
+
+    @Test
+    void asyncGenerationJobRunsPastTheSynchronousLimit() throws Exception {
+        var job = generationJobService.submit(1_200);
+        Assertions.assertThat(job.status()).isIn(GenerationStatus.QUEUED, GenerationStatus.RUNNING);
+
+        GenerationProgressDto progress = job;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (progress.status() != GenerationStatus.COMPLETED && progress.status() != GenerationStatus.FAILED
+            && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            progress = generationJobService.progress(job.id()).orElseThrow();
+        }
+
+        Assertions.assertThat(progress.status()).isEqualTo(GenerationStatus.COMPLETED);
+        Assertions.assertThat(progress.createdCount()).isEqualTo(1_200);
+        Assertions.assertThat(progress.createdBytes()).isPositive();
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM app_file WHERE generation_id = ?", Integer.class, job.id());
+        Assertions.assertThat(rows).isEqualTo(1_200);
+    }
+
+    @Test
+    void cursorPagesWalkAllFilesWithoutGapsOrDuplicates() {
+        fileGenerationService.generateFiles(10);
+        Integer total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM app_file", Integer.class);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            var page = fileGenerationService.listPage(3, cursor);
+            page.items().forEach(dto -> seen.add(dto.id()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        Assertions.assertThat(seen).doesNotHaveDuplicates().hasSize(total);
+        Assertions.assertThat(fileGenerationService.listPage(3, null).items())
+            .extracting(AppFileDto::id)
+            .containsExactlyElementsOf(seen.subList(0, 3));
+    }
+
     @Test
     void syncAddsMissingFilesystemFilesWithSameTimestamps() throws Exception {
         Path generatedDir = tempDir.resolve("uploads").resolve("generated");
@@ -82,6 +191,97 @@ class FileGenerationServiceTest {
         Assertions.assertThat(count).isEqualTo(1);
     }
 
+    @Test
+    void fullSyncReportsAddedAndMissingFiles() throws Exception {
+        fileGenerationService.generateFiles(40);
+        Path generatedDir = tempDir.resolve("uploads").resolve("generated");
+        for (int i = 0; i < 25; i++) {
+            Files.writeString(generatedDir.resolve("bulk-" + i + ".json"), "{}");
+        }
+        Files.writeString(generatedDir.resolve("gone-1.json"), "{}");
+        Assertions.assertThat(generatedFilesSync.fullScan().inserted()).isEqualTo(26);
+        Files.delete(generatedDir.resolve("gone-1.json"));
+
+        var diff = generatedFilesSync.fullScan();
+
+        Assertions.assertThat(diff.inserted()).isZero();
+        Assertions.assertThat(diff.missing()).isEqualTo(1);
+        Integer bulkRows = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM app_file WHERE file_name LIKE 'bulk-%'",
+            Integer.class
+        );
+        Assertions.assertThat(bulkRows).isEqualTo(25);
+    }
+
+    @Test
+    void incrementalSyncRecordsNewFilesAndDropsRowsOfRemovedOnes() throws Exception {
+        Path generatedDir = tempDir.resolve("uploads").resolve("generated");
+        Files.createDirectories(generatedDir);
+        Path file = generatedDir.resolve("watched-1.xml");
+        Files.writeString(file, "<a/>");
+
+        Assertions.assertThat(generatedFilesSync.applyChanges(List.of(file)))
+            .isEqualTo(new SyncResultDto(1, 0, 0));
+        Assertions.assertThat(generatedFilesSync.applyChanges(List.of(file)))
+            .isEqualTo(new SyncResultDto(0, 1, 0));
+
+        Files.delete(file);
+        Assertions.assertThat(generatedFilesSync.applyChanges(List.of(file)))
+            .isEqualTo(new SyncResultDto(0, 0, 1));
+
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM app_file WHERE file_name = 'watched-1.xml'",
+            Integer.class
+        );
+        Assertions.assertThat(count).isZero();
+    }
+
+    @Test
+    void syncedCompressedArchivesAreServedByteForByte() throws Exception {
+        Path generatedDir = tempDir.resolve("uploads").resolve("generated");
+        Files.createDirectories(generatedDir);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write("dropped-in archive ".repeat(500).getBytes(StandardCharsets.UTF_8));
+        }
+        Path file = generatedDir.resolve("dropped-1.tar.gz");
+        Files.write(file, gzipped.toByteArray());
+
+        Assertions.assertThat(generatedFilesSync.applyChanges(List.of(file)).inserted()).isEqualTo(1);
+
+        Long id = jdbcTemplate.queryForObject("SELECT id FROM app_file WHERE file_name = 'dropped-1.tar.gz'", Long.class);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(fileContentController).build();
+        MockHttpServletResponse response = mockMvc.perform(get("/api/files/" + id + "/content")).andReturn().getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(200);
+        Assertions.assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        Assertions.assertThat(response.getContentAsByteArray()).isEqualTo(gzipped.toByteArray());
+    }
+
+    @Test
+    void generatedFilesAreShardedAndFlatFilesCanBeMigrated() throws Exception {
+        var generated = fileGenerationService.generateFiles(4);
+        for (var dto : generated) {
+            Assertions.assertThat(Paths.get(dto.storagePath())).isEqualTo(generatedLayout.dirFor(dto.fileName()));
+            Assertions.assertThat(Paths.get(dto.storagePath()).getParent().getParent()).isEqualTo(generatedLayout.root());
+        }
+
+        Path flat = generatedLayout.root().resolve("flat-1.json");
+        Files.writeString(flat, "{}");
+        generatedFilesSync.fullScan();
+
+        Assertions.assertThat(generatedLayoutMigration.migrate()).isGreaterThanOrEqualTo(1);
+
+        Path sharded = generatedLayout.pathFor("flat-1.json");
+        Assertions.assertThat(flat).doesNotExist();
+        Assertions.assertThat(sharded).exists();
+        String storagePath = jdbcTemplate.queryForObject(
+            "SELECT storage_path FROM app_file WHERE file_name = 'flat-1.json'",
+            String.class
+        );
+        Assertions.assertThat(storagePath).isEqualTo(sharded.getParent().toString());
+    }
+
     @Test
     void cleanDeletesGeneratedFilesAndDbRows() throws Exception {
         fileGenerationService.generateFiles(3);
@@ -93,13 +293,23 @@ class FileGenerationServiceTest {
         Path generatedDir = tempDir.resolve("uploads").resolve("generated");
         Assertions.assertThat(Files.exists(generatedDir)).isTrue();
 
-        var result = fileGenerationService.cleanAllGenerated();
+        var started = generatedFilesCleaner.clean();
+        Assertions.assertThat(Files.list(generatedDir).findAny()).isEmpty();
+
+        CleanStatusDto result = started;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (result.status() == CleanStatus.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            result = generatedFilesCleaner.status(started.id()).orElseThrow();
+        }
 
+        Assertions.assertThat(result.status()).isEqualTo(CleanStatus.COMPLETED);
         Integer rowsAfter = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM app_file", Integer.class);
         Assertions.assertThat(rowsAfter).isEqualTo(0);
         Integer generationsAfter = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM app_generation", Integer.class);
         Assertions.assertThat(generationsAfter).isEqualTo(0);
         Assertions.assertThat(result.deletedDbRows()).isEqualTo(rowsBefore);
-        Assertions.assertThat(Files.list(generatedDir).findAny()).isEmpty();
+        Assertions.assertThat(result.deletedFiles()).isGreaterThanOrEqualTo(3);
+        Assertions.assertThat(Files.list(tempDir.resolve("uploads").resolve(GeneratedFilesCleaner.TRASH_DIR)).findAny()).isEmpty();
     }
 }
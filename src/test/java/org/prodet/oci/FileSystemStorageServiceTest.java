@@ -0,0 +1,81 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.service.FileSystemStorageService;
+import org.prodet.oci.service.GeneratedLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+class FileSystemStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemStorageService storageService() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        return new FileSystemStorageService(properties, new GeneratedLayout(properties));
+    }
+
+    @Test
+    void streamsBodyToItsFinalLocation() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+
+        long written = storageService().store("big.bin", new ByteArrayInputStream(content));
+
+        Assertions.assertThat(written).isEqualTo(content.length);
+        Assertions.assertThat(Files.readAllBytes(tempDir.resolve("big.bin"))).isEqualTo(content);
+        try (var files = Files.list(tempDir)) {
+            Assertions.assertThat(files.map(path -> path.getFileName().toString())).containsExactly("big.bin");
+        }
+    }
+
+    @Test
+    void failedStreamLeavesNoFileBehind() throws Exception {
+        InputStream broken = new InputStream() {
+            private int remaining = 1000;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining-- == 0) {
+                    throw new IOException("connection reset");
+                }
+                return 'x';
+            }
+        };
+
+        Assertions.assertThatThrownBy(() -> storageService().store("partial.bin", broken)).isInstanceOf(RuntimeException.class);
+        try (var files = Files.list(tempDir)) {
+            Assertions.assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void rejectsNamesOutsideTheStorageRoot() {
+        Assertions.assertThatThrownBy(() -> storageService().store("../escape.bin", new ByteArrayInputStream(new byte[1])))
+            .hasMessageContaining("outside current directory");
+    }
+
+    @Test
+    void rejectsReservedNames() throws Exception {
+        FileSystemStorageService storageService = storageService();
+        Path completed = Files.writeString(tempDir.resolve("completed.tmp"), "x");
+
+        for (String name : new String[]{"generated", ".trash", ".uploads", ".blobs", "big.bin.1f.part"}) {
+            Assertions.assertThatThrownBy(() -> storageService.store(name, new ByteArrayInputStream(new byte[1])))
+                .hasMessageContaining("reserved name");
+            Assertions.assertThatThrownBy(() -> storageService.store(name, completed))
+                .hasMessageContaining("reserved name");
+        }
+        Assertions.assertThat(completed).exists();
+    }
+}
@@ -0,0 +1,70 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.prodet.oci.service.GenerationArchiveService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+class GenerationArchiveServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void streamsFinishedFilesAndStoresCompressedOnes() throws Exception {
+        byte[] xml = "<a>archive</a>".repeat(100).getBytes(StandardCharsets.UTF_8);
+        Files.write(tempDir.resolve("a.xml"), xml);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(xml);
+        }
+        Files.write(tempDir.resolve("b.json"), gzipped.toByteArray());
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+
+        AppFileRepository repository = Mockito.mock(AppFileRepository.class);
+        Mockito.when(repository.findByGenerationIdAfter(Mockito.eq(7L), Mockito.eq(0L), Mockito.anyInt())).thenReturn(List.of(
+            new AppFileDto(1L, 7L, tempDir.toString(), "a.xml", now, now, xml.length, null, null),
+            new AppFileDto(2L, 7L, tempDir.toString(), "b.json", now, now, gzipped.size(), "gzip", (long) xml.length),
+            new AppFileDto(3L, 7L, tempDir.toString(), "c.txt", now, null, 0, null, null),
+            new AppFileDto(4L, 7L, tempDir.toString(), "gone.txt", now, now, 10, null, null)
+        ));
+        GenerationArchiveService service = new GenerationArchiveService(repository, Mockito.mock(AppGenerationRepository.class));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        int written = service.writeArchive(7L, archive);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                byte[] content = zip.readAllBytes();
+                if (entry.getName().equals("a.xml")) {
+                    Assertions.assertThat(entry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+                    Assertions.assertThat(content).isEqualTo(xml);
+                } else {
+                    Assertions.assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                    Assertions.assertThat(content).isEqualTo(gzipped.toByteArray());
+                }
+            }
+        }
+        Assertions.assertThat(written).isEqualTo(2);
+        Assertions.assertThat(names).containsExactly("a.xml", "b.json.gz");
+    }
+}
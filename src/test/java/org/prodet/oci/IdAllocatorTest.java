@@ -0,0 +1,76 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.prodet.oci.repository.IdAllocator;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+class IdAllocatorTest {
+
+    private static final String NEXTVAL = "SELECT app_file_seq.NEXTVAL FROM dual";
+
+    private final JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+    private void sequence(long start, long incrementBy) {
+        AtomicLong value = new AtomicLong(start);
+        Mockito.when(jdbcTemplate.queryForObject(NEXTVAL, Long.class)).thenAnswer(invocation -> value.getAndAdd(incrementBy));
+    }
+
+    @Test
+    void handsOutEachIdOnceAcrossThreadsWithOneRoundTripPerBlock() throws Exception {
+        sequence(1, 100);
+        IdAllocator allocator = new IdAllocator(jdbcTemplate, "app_file_seq", 100);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        Assertions.assertThat(ids.add(allocator.next())).isTrue();
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+
+        Assertions.assertThat(ids).hasSize(8_000).allMatch(id -> id >= 1);
+        // At most one extra block per thread that lost a race at a block boundary.
+        Mockito.verify(jdbcTemplate, Mockito.atMost(80 + 8 * 80)).queryForObject(NEXTVAL, Long.class);
+    }
+
+    @Test
+    void firstBlockStartsAtTheSequenceValue() {
+        sequence(501, 100);
+        IdAllocator allocator = new IdAllocator(jdbcTemplate, "app_file_seq", 100);
+
+        Assertions.assertThat(allocator.next()).isEqualTo(501);
+        Assertions.assertThat(allocator.next()).isEqualTo(502);
+        Mockito.verify(jdbcTemplate, Mockito.times(1)).queryForObject(NEXTVAL, Long.class);
+    }
+
+    @Test
+    void refusesOverlappingBlocksWhenTheSequenceIncrementsByLessThanTheBlockSize() {
+        sequence(1, 10);
+        IdAllocator allocator = new IdAllocator(jdbcTemplate, "app_file_seq", 100);
+        for (int i = 0; i < 100; i++) {
+            allocator.next();
+        }
+
+        Assertions.assertThatThrownBy(allocator::next)
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("ids.block-size");
+    }
+}
@@ -0,0 +1,94 @@
+package org.prodet.oci;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.config.properties.ListingProperties;
+import org.prodet.oci.dto.AppFileDto;
+import org.prodet.oci.repository.AppFileRepository;
+import org.prodet.oci.repository.AppGenerationRepository;
+import org.prodet.oci.service.ListingCache;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.LongStream;
+
+class ListingCacheTest {
+
+    private final AppFileRepository appFileRepository = Mockito.mock(AppFileRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ListingCache listingCache;
+
+    @BeforeEach
+    void setUp() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<AppFileDto> rows = LongStream.rangeClosed(1, 10)
+            .mapToObj(id -> new AppFileDto(id, null, "/tmp", "f" + id + ".json", now, now, 2, null, null))
+            .toList();
+        Mockito.when(appFileRepository.findPage(Mockito.anyInt(), Mockito.isNull()))
+            .thenAnswer(invocation -> rows.subList(0, Math.min(invocation.<Integer>getArgument(0), rows.size())));
+        listingCache = new ListingCache(appFileRepository, Mockito.mock(AppGenerationRepository.class), new ListingProperties(),
+            new GenerationProperties(), meterRegistry);
+    }
+
+    @Test
+    void repeatedListingsAreServedFromMemory() {
+        List<AppFileDto> first = listingCache.latestFiles(5).rows();
+        List<AppFileDto> second = listingCache.latestFiles(5).rows();
+        List<AppFileDto> smaller = listingCache.latestFiles(3).rows();
+
+        Assertions.assertThat(second).isEqualTo(first);
+        Assertions.assertThat(smaller).isEqualTo(first.subList(0, 3));
+        Mockito.verify(appFileRepository, Mockito.times(1)).findPage(Mockito.anyInt(), Mockito.isNull());
+        Assertions.assertThat(requests("hit")).isEqualTo(2);
+        Assertions.assertThat(requests("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void writesInvalidateCachedListings() {
+        listingCache.latestFiles(5);
+        Mockito.when(appFileRepository.changeVersion()).thenReturn(1L);
+        listingCache.latestFiles(5);
+
+        Mockito.verify(appFileRepository, Mockito.times(2)).findPage(Mockito.anyInt(), Mockito.isNull());
+        Assertions.assertThat(requests("miss")).isEqualTo(2);
+    }
+
+    @Test
+    void distributedGenerationsTurnTheCacheOff() {
+        GenerationProperties generationProperties = new GenerationProperties();
+        generationProperties.getTasks().setEnabled(true);
+        ListingCache distributed = new ListingCache(appFileRepository, Mockito.mock(AppGenerationRepository.class),
+            new ListingProperties(), generationProperties, new SimpleMeterRegistry());
+
+        distributed.latestFiles(5);
+        distributed.latestFiles(5);
+
+        Mockito.verify(appFileRepository, Mockito.times(2)).findPage(Mockito.anyInt(), Mockito.isNull());
+        Assertions.assertThat(distributed.cachedFilesVersion(5)).isEmpty();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("listing.cache.requests").tag("listing", "files").tag("result", result).counter().count();
+    }
+
+    @Test
+    void versionChangesOnlyWhenTheRowsDo() {
+        String version = listingCache.latestFiles(5).version();
+        Assertions.assertThat(listingCache.cachedFilesVersion(5)).contains(version);
+        Assertions.assertThat(listingCache.cachedFilesVersion(7)).isEmpty();
+
+        // A write that leaves the newest rows as they were keeps the version.
+        Mockito.when(appFileRepository.changeVersion()).thenReturn(1L);
+        Assertions.assertThat(listingCache.cachedFilesVersion(5)).isEmpty();
+        Assertions.assertThat(listingCache.latestFiles(5).version()).isEqualTo(version);
+
+        Mockito.when(appFileRepository.changeVersion()).thenReturn(2L);
+        Mockito.when(appFileRepository.findPage(Mockito.anyInt(), Mockito.isNull())).thenReturn(List.of());
+        Assertions.assertThat(listingCache.latestFiles(5).version()).isNotEqualTo(version);
+    }
+}
@@ -0,0 +1,44 @@
+package org.prodet.oci;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.config.properties.EventsProperties;
+import org.prodet.oci.config.properties.StorageProperties;
+import org.prodet.oci.service.FileEventBus;
+import org.prodet.oci.service.GeneratedLayout;
+import org.prodet.oci.service.PipelineMetrics;
+import org.prodet.oci.service.PipelineMetrics.Phase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class PipelineMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordsPhasesThroughputAndDirectorySize() throws Exception {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(tempDir.toString());
+        GeneratedLayout layout = new GeneratedLayout(properties);
+        Files.createDirectories(layout.root().resolve("sub"));
+        Files.write(layout.root().resolve("a.json"), new byte[10]);
+        Files.write(layout.root().resolve("sub").resolve("b.xml"), new byte[32]);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(registry, layout, new FileEventBus(new EventsProperties()));
+
+        long id = metrics.time(Phase.DB_INSERT, () -> 42L);
+        metrics.created(2, 42);
+        metrics.scanGeneratedDirectory();
+
+        Assertions.assertThat(id).isEqualTo(42L);
+        Assertions.assertThat(registry.get("generation.phase").tag("phase", "db-insert").timer().count()).isEqualTo(1);
+        Assertions.assertThat(registry.get("generation.files").counter().count()).isEqualTo(2);
+        Assertions.assertThat(registry.get("generation.bytes").counter().count()).isEqualTo(42);
+        Assertions.assertThat(registry.get("storage.generated.size").gauge().value()).isEqualTo(42);
+        Assertions.assertThat(registry.get("storage.generated.files").gauge().value()).isEqualTo(2);
+    }
+}
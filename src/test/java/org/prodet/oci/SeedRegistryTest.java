@@ -0,0 +1,59 @@
+package org.prodet.oci;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.prodet.oci.config.properties.GenerationProperties;
+import org.prodet.oci.service.SeedRegistry;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+class SeedRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesBundledSeedsByteForByte() throws Exception {
+        SeedRegistry registry = new SeedRegistry(new GenerationProperties());
+
+        SeedRegistry.Seed seed = registry.pick(SeedRegistry.SeedType.JSON);
+        Path target = tempDir.resolve("out.json");
+        long written = registry.write(seed, target);
+
+        Assertions.assertThat(written).isEqualTo(seed.size()).isEqualTo(Files.size(target));
+        try (InputStream bundled = getClass().getResourceAsStream("/media/seed-files/json/" + seed.name())) {
+            Assertions.assertThat(bundled).isNotNull();
+            Assertions.assertThat(Files.readAllBytes(target)).isEqualTo(bundled.readAllBytes());
+        }
+        Assertions.assertThat(registry.write(seed, target)).isEqualTo(written);
+        Assertions.assertThat(Files.size(target)).isEqualTo(written);
+    }
+
+    @Test
+    void reloadsExternalSeedDirectoryWhenItChanges() throws Exception {
+        Path seeds = tempDir.resolve("seeds");
+        Files.createDirectories(seeds.resolve("xml"));
+        Files.createDirectories(seeds.resolve("json"));
+        Files.writeString(seeds.resolve("xml").resolve("a.xml"), "<a/>");
+        Path json = seeds.resolve("json").resolve("a.json");
+        Files.writeString(json, "{}");
+
+        GenerationProperties properties = new GenerationProperties();
+        properties.setSeedDirectory(seeds.toString());
+        properties.setSeedReloadInterval(Duration.ZERO);
+        SeedRegistry registry = new SeedRegistry(properties);
+
+        Assertions.assertThat(registry.pick(SeedRegistry.SeedType.JSON).size()).isEqualTo(2);
+
+        Files.writeString(json, "{\"reloaded\":true}");
+        Files.setLastModifiedTime(json, FileTime.from(Instant.now().plusSeconds(5)));
+
+        Assertions.assertThat(registry.pick(SeedRegistry.SeedType.JSON).size()).isEqualTo("{\"reloaded\":true}".length());
+    }
+}